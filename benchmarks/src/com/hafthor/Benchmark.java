@@ -0,0 +1,581 @@
+package com.hafthor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+/**
+ * A simple timing harness for the solver, run against the sample puzzles from {@link Main}. It is not a substitute for
+ * a proper micro-benchmark, which is what {@link PuzzleBenchmark} is for, but it is good enough to compare two versions
+ * of the solving code on the same machine. It only measures; whether the answers are right is up to the tests.
+ */
+public class Benchmark {
+    private static final int WARMUP_ROUNDS = 100;
+    private static final int ROUNDS = 200;
+
+    public static void main(final String[] args) throws InterruptedException, ExecutionException, IOException {
+        final String[] corpus = Main.corpus();
+        time("Propagate corpus", corpus.length, () -> propagateCorpus(corpus));
+        time("Solve corpus", corpus.length, () -> solveCorpus(corpus, Puzzle.Propagation.PASSES));
+        time("Solve corpus (queue)", corpus.length, () -> solveCorpus(corpus, Puzzle.Propagation.QUEUE));
+        time("Solve corpus (bitboard)", corpus.length, () -> solveCorpus(corpus, Puzzle.Propagation.BITBOARD));
+        timingListener(corpus);
+        guessStrategy("FIRST", GuessStrategy.FIRST, corpus);
+        guessStrategy("MRV", GuessStrategy.MRV, corpus);
+        for (int i = corpus.length - 4; i < corpus.length - 1; i++) {
+            deductionRules(corpus[i], "no rules");
+            deductionRules(corpus[i], "all rules", DeductionRule.values());
+        }
+        solvers(corpus[corpus.length - 2], randomGivens(17, 200));
+        budget(randomGivens(17, 200), Duration.ofMillis(1));
+        batch("Batch solve (1 thread)", corpus, 1);
+        batch("Batch solve (" + Runtime.getRuntime().availableProcessors() + " threads)", corpus,
+                Runtime.getRuntime().availableProcessors());
+        fileSolve("Solve file", corpus, 1000);
+        server("Server (1 per request)", corpus, 1, 8, 2000);
+        server("Server (16 per request)", corpus, 16, 8, 200);
+        codec(corpus);
+        rendering(corpus);
+        solutionCache(corpus, 4);
+        enumeration(corpus[corpus.length - 1], 1000);
+        parallelSearch(corpus[corpus.length - 2], 0);
+        parallelSearch(corpus[corpus.length - 2], 2);
+        generation("Generate", 20, Puzzle::new);
+        generation("Generate from solution", 20, Puzzle::generateFromSolution);
+        generation("Generate to 30 givens", 20, seed -> Puzzle.generateFromSolution(new Random(seed), 30));
+        allocations("Solve allocations", corpus);
+        solverContext(corpus);
+        generationAllocations("Generation allocations", 20);
+    }
+
+    private static void propagateCorpus(final String[] corpus) {
+        for (final String input : corpus) {
+            final Puzzle puzzle = new Puzzle(input.split("\n")[1]);
+            do {
+                while (puzzle.solveExclusionary() != 0) ;
+            } while (puzzle.isOk() && puzzle.solveLoner() != 0);
+        }
+    }
+
+    private static void solveCorpus(final String[] corpus, final Puzzle.Propagation propagation) {
+        for (final String input : corpus) {
+            final Puzzle puzzle = new Puzzle(input.split("\n")[1]);
+            puzzle.setPropagation(propagation);
+            puzzle.solve(true, false);
+        }
+    }
+
+    /**
+     * Times solving the corpus with a timing listener, to compare with solving it without, and reports where the time
+     * went in one more solve of it.
+     */
+    private static void timingListener(final String[] corpus) {
+        time("Solve corpus (timing)", corpus.length, () -> {
+            final TimingListener listener = new TimingListener();
+            for (final String input : corpus) {
+                final Puzzle puzzle = new Puzzle(input.split("\n")[1]);
+                puzzle.setListener(listener);
+                puzzle.solve(true, false);
+            }
+        });
+        final TimingListener listener = new TimingListener();
+        for (final String input : corpus) {
+            final Puzzle puzzle = new Puzzle(input.split("\n")[1]);
+            puzzle.setListener(listener);
+            puzzle.solve(true, false);
+        }
+        System.out.println("Timing listener " + listener.getStatistics());
+    }
+
+    /**
+     * Reports the total guesses and backtracks needed to solve the corpus with the given guess strategy, and the time.
+     */
+    private static void guessStrategy(final String name, final GuessStrategy strategy, final String[] corpus) {
+        int guesses = 0, backtracks = 0;
+        for (final String input : corpus) {
+            final Puzzle puzzle = new Puzzle(input.split("\n")[1]);
+            puzzle.solve(true, strategy);
+            guesses += puzzle.getGuesses();
+            backtracks += puzzle.getBacktracks();
+        }
+        System.out.printf("Guess strategy %-9s %6d guesses %6d backtracks%n", name, guesses, backtracks);
+        time("Solve corpus (" + name + ")", corpus.length, () -> {
+            for (final String input : corpus)
+                new Puzzle(input.split("\n")[1]).solve(true, strategy);
+        });
+    }
+
+    /**
+     * Reports the guesses needed to solve a puzzle with the given deduction rules, and the time.
+     */
+    private static void deductionRules(final String input, final String name, final DeductionRule... rules) {
+        final String[] ss = input.split("\n");
+        final Puzzle puzzle = new Puzzle(ss[1]);
+        puzzle.setRules(rules);
+        puzzle.solve(true, false);
+        System.out.printf("%-11s %-9s %6d guesses %s%n", ss[0], name, puzzle.getGuesses(), puzzle.getStatistics());
+        time("Solve " + ss[0] + " (" + name + ")", 1, () -> {
+            final Puzzle p = new Puzzle(ss[1]);
+            p.setRules(rules);
+            p.solve(true, false);
+        });
+    }
+
+    /**
+     * Compares guessing and backtracking in the puzzle itself with handing the grid to a dancing links solver, on a
+     * puzzle, and on counting the solutions, up to two, of grids of random givens like the generator starts from.
+     */
+    private static void solvers(final String input, final String[] randomGivens) {
+        final String[] ss = input.split("\n");
+        for (final Solver solver : new Solver[]{null, new DlxSolver()}) {
+            final String name = solver == null ? "backtracking" : "dlx";
+            final Puzzle puzzle = new Puzzle(ss[1]);
+            puzzle.setSolver(solver);
+            puzzle.solve(true, false);
+            System.out.printf("%-11s %-12s %6d guesses %s%n", ss[0], name, puzzle.getGuesses(), puzzle.getStatistics());
+            time("Solve " + ss[0] + " (" + name + ")", 1, () -> {
+                final Puzzle p = new Puzzle(ss[1]);
+                p.setSolver(solver);
+                p.solve(true, false);
+            });
+            int solutions = 0, guesses = 0;
+            for (final String givens : randomGivens) {
+                final Puzzle p = new Puzzle(givens);
+                p.setSolver(solver);
+                solutions += p.countSolutions(2);
+                guesses += p.getGuesses();
+            }
+            System.out.printf("%-11s %-12s %6d guesses %6d solutions%n", "17 givens", name, guesses, solutions);
+            time("Count 17 givens (" + name + ")", randomGivens.length, () -> {
+                for (final String givens : randomGivens) {
+                    final Puzzle p = new Puzzle(givens);
+                    p.setSolver(solver);
+                    p.countSolutions(2);
+                }
+            });
+        }
+    }
+
+    /**
+     * Solves grids of random givens with and without a time budget per grid, and reports the slowest and mean solve,
+     * which is what the budget bounds, along with how the solves ended.
+     */
+    private static void budget(final String[] grids, final Duration timeout) {
+        for (final Duration budget : new Duration[]{ChronoUnit.FOREVER.getDuration(), timeout}) {
+            final int[] statuses = new int[SearchStatus.values().length];
+            long slowest = 0, total = 0;
+            for (int round = 0; round < 3; round++) { // the first two to warm up
+                for (final String grid : grids) {
+                    final long start = System.nanoTime();
+                    final SearchStatus status = new Puzzle(grid).solve(GuessStrategy.FIRST, Long.MAX_VALUE, budget,
+                            CancellationToken.NONE);
+                    final long elapsed = System.nanoTime() - start;
+                    if (round == 2) {
+                        statuses[status.ordinal()]++;
+                        slowest = Math.max(slowest, elapsed);
+                        total += elapsed;
+                    }
+                }
+            }
+            final StringBuilder sb = new StringBuilder();
+            for (final SearchStatus status : SearchStatus.values())
+                if (statuses[status.ordinal()] > 0)
+                    sb.append(' ').append(status).append(": ").append(statuses[status.ordinal()]);
+            System.out.printf("%-24s %10.1f us max %10.1f us mean%s%n",
+                    budget == timeout ? "Budget " + timeout.toMillis() + " ms" : "No budget", slowest / 1e3,
+                    total / 1e3 / grids.length, sb);
+        }
+    }
+
+    /**
+     * Returns grids of random givens at random cells, which may well have no solution or many.
+     */
+    private static String[] randomGivens(final int count, final int puzzles) {
+        final Random random = new Random(0);
+        final String[] grids = new String[puzzles];
+        for (int n = 0; n < puzzles; n++) {
+            final char[] cells = ".".repeat(9 * 9).toCharArray();
+            for (int placed = 0; placed < count; ) {
+                final int i = random.nextInt(cells.length);
+                if (cells[i] == '.') {
+                    cells[i] = (char) ('1' + random.nextInt(9));
+                    placed++;
+                }
+            }
+            grids[n] = new String(cells);
+        }
+        return grids;
+    }
+
+    private static void batch(final String label, final String[] corpus, final int threads) {
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            final PuzzleBatchSolver solver = new PuzzleBatchSolver(pool, threads * 4, GuessStrategy.FIRST);
+            final int copies = 10;
+            time(label, corpus.length * copies, () -> solver.solveAll(Arrays.stream(corpus)
+                    .map(input -> input.split("\n")[1])
+                    .flatMap(input -> Collections.nCopies(copies, input).stream()), puzzle -> {
+            }));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Times solving a file of copies of the corpus, one puzzle per line, into another file.
+     */
+    private static void fileSolve(final String label, final String[] corpus, final int copies) throws IOException {
+        final Path input = Files.createTempFile("puzzles", ".txt"), output = Files.createTempFile("solutions", ".txt");
+        try {
+            final StringBuilder sb = new StringBuilder();
+            for (final String s : corpus)
+                sb.append(s.split("\n")[1].replace(" ", "")).append('\n');
+            Files.write(input, sb.toString().repeat(copies).getBytes(StandardCharsets.US_ASCII));
+            final PuzzleFileSolver solver = new PuzzleFileSolver();
+            time(label, corpus.length * copies, 2, 5, () -> {
+                try {
+                    solver.solve(input, output);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        } finally {
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+
+    /**
+     * Reports the sizes of the corpus, as given, part way through solving, and solved, in binary, and how long encoding
+     * and decoding take compared to text.
+     */
+    private static void codec(final String[] corpus) {
+        final List<Puzzle> puzzles = new ArrayList<>();
+        for (final String input : corpus) {
+            final String s = input.split("\n")[1];
+            puzzles.add(new Puzzle(s));
+            final Puzzle reduced = new Puzzle(s);
+            reduced.solveExclusionary();
+            puzzles.add(reduced);
+            final Puzzle solved = new Puzzle(s);
+            solved.solve(true, false);
+            puzzles.add(solved);
+        }
+        System.out.printf("%-24s %10d B text %6d B givens %6d B candidates%n", "Puzzle size",
+                puzzles.get(0).toString().length(), Puzzle.GIVENS_BYTES, Puzzle.CANDIDATES_BYTES);
+
+        final String[] texts = puzzles.stream().map(Puzzle::toString).toArray(String[]::new);
+        final byte[][] givens = puzzles.stream().map(Puzzle::toBytes).toArray(byte[][]::new);
+        final byte[][] candidates = puzzles.stream().map(puzzle -> puzzle.toBytes(true)).toArray(byte[][]::new);
+        time("Encode text", puzzles.size(), 2000, 2000, () -> puzzles.forEach(Puzzle::toString));
+        time("Decode text", puzzles.size(), 2000, 2000, () -> Arrays.stream(texts).forEach(Puzzle::new));
+        time("Encode givens", puzzles.size(), 2000, 2000, () -> puzzles.forEach(Puzzle::toBytes));
+        time("Decode givens", puzzles.size(), 2000, 2000, () -> Arrays.stream(givens).forEach(Puzzle::fromBytes));
+        time("Encode candidates", puzzles.size(), 2000, 2000, () -> puzzles.forEach(puzzle -> puzzle.toBytes(true)));
+        time("Decode candidates", puzzles.size(), 2000, 2000, () ->
+                Arrays.stream(candidates).forEach(Puzzle::fromBytes));
+    }
+
+    /**
+     * Renders the solved corpus in each form, into a reused string builder or byte buffer, and prints it to a stream
+     * that discards its output, a grid at a time and a character at a time, to show what batching the writes saves.
+     */
+    private static void rendering(final String[] corpus) {
+        final List<Puzzle> puzzles = new ArrayList<>();
+        for (final String input : corpus) {
+            final Puzzle puzzle = new Puzzle(input.split("\n")[1]);
+            puzzle.solve(true, false);
+            puzzles.add(puzzle);
+        }
+        final StringBuilder sb = new StringBuilder();
+        final ByteBuffer buffer = ByteBuffer.allocate(9 * 9);
+        final PrintStream out = new PrintStream(OutputStream.nullOutputStream());
+        for (final PuzzleRenderer renderer : PuzzleRenderer.values())
+            time("Render " + renderer.name().toLowerCase(), puzzles.size(), 2000, 2000, () ->
+                    puzzles.forEach(puzzle -> {
+                        sb.setLength(0);
+                        renderer.render(puzzle, sb);
+                    }));
+        time("Render compact bytes", puzzles.size(), 2000, 2000, () -> puzzles.forEach(puzzle -> {
+            buffer.clear();
+            PuzzleRenderer.COMPACT.render(puzzle, buffer);
+        }));
+        time("Print ansi", puzzles.size(), 2000, 2000, () -> puzzles.forEach(puzzle -> {
+            sb.setLength(0);
+            out.append(PuzzleRenderer.ANSI.render(puzzle, sb));
+        }));
+        time("Print ansi per char", puzzles.size(), 200, 200, () -> puzzles.forEach(puzzle -> {
+            sb.setLength(0);
+            PuzzleRenderer.ANSI.render(puzzle, sb);
+            for (int i = 0; i < sb.length(); i++)
+                out.print(sb.charAt(i));
+        }));
+    }
+
+    /**
+     * Solves the corpus on a {@link PuzzleServer} from concurrent clients, each sending its requests one after the
+     * other, and reports the clients' latencies and throughput, once warmed up, along with the server's own metrics.
+     */
+    private static void server(final String label, final String[] corpus, final int puzzlesPerRequest,
+                               final int clients, final int requestsPerClient)
+            throws IOException, InterruptedException, ExecutionException {
+        final StringBuilder body = new StringBuilder();
+        for (int i = 0; i < puzzlesPerRequest; i++)
+            body.append(corpus[i % corpus.length].split("\n")[1]).append('\n');
+        System.setProperty("sun.net.httpserver.nodelay", "true"); // as PuzzleServer.main does
+        try (PuzzleServer server = new PuzzleServer(0)) {
+            server.start();
+            final HttpClient client = HttpClient.newHttpClient();
+            final HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() +
+                    "/solve")).POST(HttpRequest.BodyPublishers.ofString(body.toString())).build();
+            final ExecutorService executor = Executors.newFixedThreadPool(clients);
+            try {
+                for (final int rounds : new int[]{requestsPerClient / 4, requestsPerClient}) { // warm up first
+                    final List<Future<long[]>> futures = new ArrayList<>();
+                    final long start = System.nanoTime();
+                    for (int c = 0; c < clients; c++) {
+                        futures.add(executor.submit(() -> {
+                            final long[] latencies = new long[rounds];
+                            for (int r = 0; r < rounds; r++) {
+                                final long t = System.nanoTime();
+                                client.send(request, HttpResponse.BodyHandlers.ofString());
+                                latencies[r] = System.nanoTime() - t;
+                            }
+                            return latencies;
+                        }));
+                    }
+                    final long[] latencies = new long[clients * rounds];
+                    for (int c = 0; c < clients; c++)
+                        System.arraycopy(futures.get(c).get(), 0, latencies, c * rounds, rounds);
+                    final long elapsed = System.nanoTime() - start;
+                    Arrays.sort(latencies);
+                    if (rounds == requestsPerClient) {
+                        System.out.printf("%-24s %10.1f us p50 %10.1f us p99 %10.0f puzzles/s%n", label,
+                                latencies[latencies.length / 2] / 1e3, latencies[latencies.length * 99 / 100] / 1e3,
+                                latencies.length * (double) puzzlesPerRequest / (elapsed / 1e9));
+                    }
+                }
+            } finally {
+                executor.shutdown();
+            }
+            System.out.printf("%-24s%s%n", label, server.getStatistics());
+        }
+    }
+
+    /**
+     * Solves the corpus and several copies of each puzzle transformed at random into the same puzzle up to symmetry,
+     * with and without a solution cache, and reports the time and the cache's metrics.
+     */
+    private static void solutionCache(final String[] corpus, final int copies) {
+        final Random random = new Random(0);
+        final List<String> inputs = new ArrayList<>();
+        for (int copy = 0; copy <= copies; copy++)
+            for (final String input : corpus)
+                inputs.add(copy == 0 ? input.split("\n")[1] : transform(input.split("\n")[1], random));
+
+        final SolutionCache cache = new SolutionCache(corpus.length);
+        for (final String input : inputs) {
+            final Puzzle puzzle = new Puzzle(input);
+            puzzle.setSolutionCache(cache);
+            puzzle.solve(true, false);
+        }
+        System.out.printf("%-24s %10d puzzles %s%n", "Solution cache", inputs.size(), cache.getStatistics());
+        time("Solve copies", inputs.size(), () -> inputs.forEach(input -> new Puzzle(input).solve(true, false)));
+        time("Solve copies (cached)", inputs.size(), () -> inputs.forEach(input -> {
+            final Puzzle puzzle = new Puzzle(input);
+            puzzle.setSolutionCache(cache);
+            puzzle.solve(true, false);
+        }));
+        time("Canonical form", inputs.size(), () -> inputs.forEach(input -> new Puzzle(input).getCanonicalForm()));
+    }
+
+    /**
+     * Returns the puzzle with its rows and columns reordered within their bands and stacks, its bands and stacks
+     * reordered, possibly transposed, and its values relabeled, all at random.
+     */
+    private static String transform(final String puzzle, final Random random) {
+        final String cells = puzzle.replaceAll("[^1-9.]", "");
+        final int[] rows = bandPermutation(random), cols = bandPermutation(random);
+        final boolean transpose = random.nextBoolean();
+        final List<Character> values = new ArrayList<>(List.of('1', '2', '3', '4', '5', '6', '7', '8', '9'));
+        Collections.shuffle(values, random);
+        final StringBuilder sb = new StringBuilder(9 * 9);
+        for (int r = 0; r < 9; r++) {
+            for (int c = 0; c < 9; c++) {
+                final char cell = cells.charAt(transpose ? cols[c] * 9 + rows[r] : rows[r] * 9 + cols[c]);
+                sb.append(cell == '.' ? '.' : values.get(cell - '1'));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int[] bandPermutation(final Random random) {
+        final List<Integer> bands = new ArrayList<>(List.of(0, 3, 6));
+        Collections.shuffle(bands, random);
+        final int[] permutation = new int[9];
+        int n = 0;
+        for (final int band : bands) {
+            final List<Integer> lines = new ArrayList<>(List.of(0, 1, 2));
+            Collections.shuffle(lines, random);
+            for (final int line : lines)
+                permutation[n++] = band + line;
+        }
+        return permutation;
+    }
+
+    /**
+     * Times streaming the first solutions of a puzzle with many of them, sequentially and in parallel.
+     */
+    private static void enumeration(final String input, final int limit) {
+        final Puzzle puzzle = new Puzzle(input.split("\n")[1]);
+        time("Stream " + limit + " solutions", limit, 10, 20, () -> puzzle.solutions().limit(limit).count());
+        time("Stream " + limit + " (parallel)", limit, 10, 20,
+                () -> puzzle.solutions().parallel().limit(limit).count());
+    }
+
+    /**
+     * Times finding the first solution to, and counting all solutions of, one puzzle with a parallel search split into
+     * tasks for the first levels of guesses.
+     */
+    private static void parallelSearch(final String input, final int splitDepth) {
+        final String[] ss = input.split("\n");
+        final ForkJoinPool pool = ForkJoinPool.commonPool();
+        time("Parallel " + ss[0] + " /" + splitDepth, 1, () ->
+                new Puzzle(ss[1]).solveInParallel(pool, splitDepth, false, GuessStrategy.MRV));
+        final Puzzle puzzle = new Puzzle(ss[1]);
+        puzzle.solveInParallel(pool, splitDepth, true, GuessStrategy.MRV);
+        System.out.println("  solutions: " + puzzle.getSolutions() + puzzle.getStatistics());
+    }
+
+    /**
+     * Reports how long it takes to generate puzzles, and how many rounds of generation that takes.
+     */
+    private static void generation(final String label, final int count, final IntFunction<Puzzle> generator) {
+        long rounds = 0, givens = 0;
+        final long start = System.nanoTime();
+        for (int seed = 0; seed < count; seed++) {
+            final Puzzle puzzle = generator.apply(seed);
+            rounds += puzzle.getRounds() + 1;
+            givens += puzzle.toString().chars().filter(c -> '1' <= c && c <= '9').count();
+        }
+        final long elapsed = System.nanoTime() - start;
+        System.out.printf("%-24s %10.1f us/puzzle %8.1f rounds/puzzle %6.1f givens/puzzle%n", label,
+                elapsed / 1e3 / count, (double) rounds / count, (double) givens / count);
+    }
+
+    private static void time(final String label, final int puzzlesPerRound, final Runnable round) {
+        time(label, puzzlesPerRound, WARMUP_ROUNDS, ROUNDS, round);
+    }
+
+    private static void time(final String label, final int puzzlesPerRound, final int warmupRounds, final int rounds,
+                             final Runnable round) {
+        for (int i = 0; i < warmupRounds; i++)
+            round.run();
+        final long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++)
+            round.run();
+        final long elapsed = System.nanoTime() - start;
+        System.out.printf("%-24s %10.1f us/round %10.1f us/puzzle%n", label,
+                elapsed / 1e3 / rounds, elapsed / 1e3 / rounds / puzzlesPerRound);
+    }
+
+    /**
+     * Reports the bytes allocated by the solver itself, i.e. not counting parsing, per puzzle and per guess.
+     */
+    private static void allocations(final String label, final String[] corpus) {
+        long bytes = 0, guesses = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            for (final String input : corpus) {
+                final Puzzle puzzle = new Puzzle(input.split("\n")[1]);
+                final long before = allocatedBytes();
+                puzzle.solve(true, false);
+                final long after = allocatedBytes();
+                if (round >= WARMUP_ROUNDS) {
+                    bytes += after - before;
+                    guesses += puzzle.getGuesses();
+                }
+            }
+        }
+        System.out.printf("%-24s %10.1f B/puzzle  %10.1f B/guess%n", label,
+                (double) bytes / ROUNDS / corpus.length, (double) bytes / guesses);
+    }
+
+    /**
+     * Compares solving the corpus on new puzzles with solving it on a reused {@link SolverContext}, by time, and by the
+     * bytes allocated per puzzle, parsing included, once warmed up.
+     */
+    private static void solverContext(final String[] corpus) {
+        final String[] inputs = new String[corpus.length];
+        for (int i = 0; i < corpus.length; i++)
+            inputs[i] = corpus[i].split("\n")[1];
+        final SolverContext context = new SolverContext();
+        context.getPuzzle().setPropagation(Puzzle.Propagation.QUEUE);
+        final Runnable fresh = () -> {
+            for (final String input : inputs) {
+                final Puzzle puzzle = new Puzzle(input);
+                puzzle.setPropagation(Puzzle.Propagation.QUEUE);
+                puzzle.solve(true, false);
+            }
+        };
+        final Runnable reused = () -> {
+            for (final String input : inputs)
+                context.solve(input);
+        };
+        time("Solve corpus (new)", inputs.length, fresh);
+        time("Solve corpus (context)", inputs.length, reused);
+        for (final String label : new String[]{"new", "context"}) {
+            final Runnable round = label.equals("new") ? fresh : reused;
+            for (int i = 0; i < WARMUP_ROUNDS; i++)
+                round.run();
+            final long before = allocatedBytes();
+            for (int i = 0; i < ROUNDS; i++)
+                round.run();
+            System.out.printf("%-24s %10.1f B/puzzle%n", "Solve allocations (" + label + ")",
+                    (double) (allocatedBytes() - before) / ROUNDS / inputs.length);
+        }
+    }
+
+    /**
+     * Reports the bytes allocated while generating puzzles, per round of generation and per guess.
+     */
+    private static void generationAllocations(final String label, final int count) {
+        long bytes = 0, rounds = 0;
+        for (int seed = 0; seed < count; seed++) {
+            final long before = allocatedBytes();
+            final Puzzle puzzle = new Puzzle(seed);
+            bytes += allocatedBytes() - before;
+            rounds += puzzle.getRounds() + 1;
+        }
+        System.out.printf("%-24s %10.1f B/round%n", label, (double) bytes / rounds);
+    }
+
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
\ No newline at end of file
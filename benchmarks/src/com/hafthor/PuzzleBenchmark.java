@@ -0,0 +1,255 @@
+package com.hafthor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for parsing, propagating, solving, generating and printing puzzles, using the sample puzzles from
+ * {@link Main}, and for solving generated {@link SizedPuzzle}s of each size. Run with {@code gradle jmh}, which adds
+ * the gc profiler so each benchmark also reports its allocation rate.
+ * <p>
+ * A {@link Puzzle} can only be propagated once, so the propagation benchmarks parse a fresh puzzle every time and
+ * include the cost of {@link #parse(PuzzleState)}, which should be subtracted when comparing them.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PuzzleBenchmark {
+    private static final int SIZED_PUZZLES = 20;
+    // the fraction of cells left as givens by box size, as for the generated puzzles in the tests
+    private static final double[] SIZED_GIVENS = {0, 0, 0.3, 0.35, 0.45, 0.6};
+    private static final String SIZED_ALPHABET = "123456789ABCDEFGHIJKLMNOP";
+
+    /**
+     * An easy and a hard sample puzzle, for the benchmarks of single steps.
+     */
+    @State(Scope.Benchmark)
+    public static class PuzzleState {
+        @Param({"inputEasy", "inputEvil"})
+        public String name;
+
+        String input;
+        Puzzle solved;
+
+        @Setup
+        public void setup() {
+            input = input(name);
+            solved = new Puzzle(input);
+            solved.solve(true, false);
+        }
+    }
+
+    /**
+     * Every sample puzzle, for the benchmark of solving.
+     */
+    @State(Scope.Benchmark)
+    public static class CorpusState {
+        @Param({"input6", "input19", "input25", "input30", "input46", "input51", "input66", "input71", "input76",
+                "input87", "input92", "input97", "input102", "input109", "input114", "input120", "input126",
+                "inputEasy", "inputMedium", "inputHard", "inputExpert", "inputEvil", "inputGen1"})
+        public String name;
+
+        String input;
+
+        @Setup
+        public void setup() {
+            input = input(name);
+        }
+    }
+
+    /**
+     * Seeds for generating puzzles, cycled through so that one unusually quick or slow seed doesn't dominate.
+     */
+    @State(Scope.Thread)
+    public static class SeedState {
+        private static final int SEEDS = 20;
+        private int seed;
+
+        int next() {
+            seed = (seed + 1) % SEEDS;
+            return seed;
+        }
+    }
+
+    /**
+     * Generated puzzles of a box size, cycled through like the seeds, for the benchmark of the sized engine.
+     */
+    @State(Scope.Thread)
+    public static class SizedState {
+        @Param({"2", "3", "4", "5"})
+        public int boxSize;
+
+        String[] puzzles;
+        private int n;
+
+        @Setup
+        public void setup() {
+            puzzles = sizedPuzzles(boxSize);
+        }
+
+        String next() {
+            n = (n + 1) % puzzles.length;
+            return puzzles[n];
+        }
+    }
+
+    /**
+     * Generated 9x9 puzzles, solved by the sized engine or handed to {@link Puzzle}, to compare the two.
+     */
+    @State(Scope.Thread)
+    public static class FastPathState {
+        @Param({"false", "true"})
+        public boolean fastPath;
+
+        final String[] puzzles = sizedPuzzles(3);
+        private int n;
+
+        String next() {
+            n = (n + 1) % puzzles.length;
+            return puzzles[n];
+        }
+    }
+
+    /**
+     * A dancing links solver per thread, since one can only be used by one thread at a time.
+     */
+    @State(Scope.Thread)
+    public static class DlxState {
+        final DlxSolver solver = new DlxSolver();
+    }
+
+    /**
+     * A solver context per thread, reused for every puzzle, so solving on it should allocate nothing.
+     */
+    @State(Scope.Thread)
+    public static class ContextState {
+        final SolverContext context = new SolverContext();
+    }
+
+    @Benchmark
+    public Puzzle parse(final PuzzleState state) {
+        return new Puzzle(state.input);
+    }
+
+    @Benchmark
+    public int solveExclusionary(final PuzzleState state) {
+        return new Puzzle(state.input).solveExclusionary();
+    }
+
+    @Benchmark
+    public int solveLoner(final PuzzleState state) {
+        return new Puzzle(state.input).solveLoner();
+    }
+
+    @Benchmark
+    public Puzzle solve(final CorpusState state) {
+        final Puzzle puzzle = new Puzzle(state.input);
+        puzzle.solve(true, false);
+        return puzzle;
+    }
+
+    @Benchmark
+    public Puzzle solveDlx(final CorpusState state, final DlxState dlx) {
+        final Puzzle puzzle = new Puzzle(state.input);
+        puzzle.setSolver(dlx.solver);
+        puzzle.solve(true, false);
+        return puzzle;
+    }
+
+    @Benchmark
+    public Puzzle solveContext(final CorpusState state, final ContextState context) {
+        return context.context.solve(state.input);
+    }
+
+    @Benchmark
+    public SizedPuzzle solveSized(final SizedState state) {
+        final SizedPuzzle puzzle = new SizedPuzzle(state.boxSize, state.next());
+        puzzle.solve();
+        return puzzle;
+    }
+
+    @Benchmark
+    public SizedPuzzle solveSizedFastPath(final FastPathState state) {
+        final SizedPuzzle puzzle = new SizedPuzzle(3, state.next());
+        puzzle.countSolutions(1, state.fastPath);
+        return puzzle;
+    }
+
+    @Benchmark
+    public Puzzle generate(final SeedState state) {
+        return new Puzzle(state.next());
+    }
+
+    @Benchmark
+    public String print(final PuzzleState state) {
+        return state.solved.toString();
+    }
+
+    private static String input(final String name) {
+        for (final String input : Main.corpus()) {
+            final String[] ss = input.split("\n");
+            if (ss[0].equals(name))
+                return ss[1];
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    /**
+     * Returns puzzles of a box size made from a pattern solution shuffled at random, by relabeling its values and
+     * reordering its rows within bands and its columns within stacks, with all but a fraction of its cells taken
+     * away at random, few enough that the larger sizes need guessing. They may well have more than one solution.
+     */
+    private static String[] sizedPuzzles(final int boxSize) {
+        final Random random = new Random(boxSize);
+        final int side = boxSize * boxSize;
+        final double givens = SIZED_GIVENS[boxSize];
+        final String[] puzzles = new String[SIZED_PUZZLES];
+        for (int n = 0; n < puzzles.length; n++) {
+            final List<Integer> values = new ArrayList<>();
+            for (int value = 0; value < side; value++)
+                values.add(value);
+            Collections.shuffle(values, random);
+            final int[] rows = linePermutation(boxSize, random), cols = linePermutation(boxSize, random);
+            final StringBuilder sb = new StringBuilder(side * side);
+            for (int r = 0; r < side; r++) {
+                for (int c = 0; c < side; c++) {
+                    final int row = rows[r], col = cols[c];
+                    final int value = (boxSize * (row % boxSize) + row / boxSize + col) % side;
+                    sb.append(random.nextDouble() < givens ? SIZED_ALPHABET.charAt(values.get(value)) : '.');
+                }
+            }
+            puzzles[n] = sb.toString();
+        }
+        return puzzles;
+    }
+
+    private static int[] linePermutation(final int boxSize, final Random random) {
+        final int[] permutation = new int[boxSize * boxSize];
+        for (int band = 0; band < boxSize; band++) {
+            final List<Integer> lines = new ArrayList<>();
+            for (int line = 0; line < boxSize; line++)
+                lines.add(band * boxSize + line);
+            Collections.shuffle(lines, random);
+            for (int line = 0; line < boxSize; line++)
+                permutation[band * boxSize + line] = lines.get(line);
+        }
+        return permutation;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,167 @@
+package com.hafthor;
+
+/**
+ * An alternative representation of a puzzle's possible values for propagating known values, with one 81-bit mask per
+ * value instead of one 9-bit mask per cell. Each mask is split over two longs, cells 0 to 63 in one and cells 64 to 80
+ * in the other, so that removing a value from all the peers of a cell, or finding where a value can go in a unit, takes
+ * a few bitwise operations and population counts rather than a loop over cells.
+ */
+final class Bitboard {
+    private static final long HI_CELLS = (1L << (9 * 9 - 64)) - 1;
+
+    private static final long[] PEERS_LO = new long[9 * 9], PEERS_HI = new long[9 * 9];
+    private static final long[] UNITS_LO = new long[27], UNITS_HI = new long[27];
+
+    static {
+        for (int i = 0; i < 9 * 9; i++)
+            for (final int peer : Puzzle.PEERS[i])
+                if (peer < 64)
+                    PEERS_LO[i] |= 1L << peer;
+                else
+                    PEERS_HI[i] |= 1L << (peer - 64);
+        for (int unit = 0; unit < 27; unit++)
+            for (final int i : Puzzle.UNITS[unit])
+                if (i < 64)
+                    UNITS_LO[unit] |= 1L << i;
+                else
+                    UNITS_HI[unit] |= 1L << (i - 64);
+    }
+
+    // the cells each value is possible in
+    private final long[] lo = new long[9], hi = new long[9];
+
+    private int passes, reduces, loners, knownCells;
+
+    /**
+     * Returns the number of passes made by the last propagation.
+     * @return the number of passes made by the last propagation
+     */
+    int getPasses() {
+        return passes;
+    }
+
+    /**
+     * Returns the number of possible values removed from peers of known cells by the last propagation.
+     * @return the number of possible values removed from peers of known cells by the last propagation
+     */
+    int getReduces() {
+        return reduces;
+    }
+
+    /**
+     * Returns the number of cells found by the last propagation to be the only one in a unit for a value.
+     * @return the number of cells found by the last propagation to be the only one in a unit for a value
+     */
+    int getLoners() {
+        return loners;
+    }
+
+    /**
+     * Returns the number of known cells after the last propagation, if it didn't leave a cell with no possible values.
+     * @return the number of known cells after the last propagation
+     */
+    int getKnownCells() {
+        return knownCells;
+    }
+
+    /**
+     * Loads the possible values of a grid of 9-bit bitmasks.
+     */
+    void load(final short[] grid) {
+        for (int value = 0; value < 9; value++) {
+            long l = 0, h = 0;
+            for (int i = 0; i < 64; i++)
+                l |= (long) ((grid[i] >> value) & 1) << i;
+            for (int i = 64; i < 9 * 9; i++)
+                h |= (long) ((grid[i] >> value) & 1) << (i - 64);
+            lo[value] = l;
+            hi[value] = h;
+        }
+    }
+
+    /**
+     * Stores the possible values back into a grid of 9-bit bitmasks.
+     */
+    void store(final short[] grid) {
+        for (int i = 0; i < 64; i++) {
+            int cell = 0;
+            for (int value = 0; value < 9; value++)
+                cell |= (int) ((lo[value] >>> i) & 1) << value;
+            grid[i] = (short) cell;
+        }
+        for (int i = 64; i < 9 * 9; i++) {
+            int cell = 0;
+            for (int value = 0; value < 9; value++)
+                cell |= (int) ((hi[value] >>> (i - 64)) & 1) << value;
+            grid[i] = (short) cell;
+        }
+    }
+
+    /**
+     * Removes the value of every known cell from its peers, and makes every cell that is the only one in a unit that
+     * could be a particular value known, until neither changes anything.
+     * @return false if a cell was left with no possible values, in which case propagation stops there
+     */
+    boolean propagate() {
+        passes = reduces = loners = 0;
+        long doneLo = 0, doneHi = 0; // known cells already removed from their peers
+        while (true) {
+            passes++;
+            long onceLo = 0, onceHi = 0, twiceLo = 0, twiceHi = 0;
+            for (int value = 0; value < 9; value++) {
+                twiceLo |= onceLo & lo[value];
+                twiceHi |= onceHi & hi[value];
+                onceLo |= lo[value];
+                onceHi |= hi[value];
+            }
+            if (onceLo != -1L || onceHi != HI_CELLS)
+                return false; // a cell has no possible values
+            final long knownLo = ~twiceLo & ~doneLo, knownHi = ~twiceHi & HI_CELLS & ~doneHi;
+            if ((knownLo | knownHi) != 0) {
+                for (int value = 0; value < 9; value++) {
+                    for (long cells = lo[value] & knownLo; cells != 0; cells &= cells - 1)
+                        removeFromPeers(value, Long.numberOfTrailingZeros(cells));
+                    for (long cells = hi[value] & knownHi; cells != 0; cells &= cells - 1)
+                        removeFromPeers(value, 64 + Long.numberOfTrailingZeros(cells));
+                }
+                doneLo |= knownLo;
+                doneHi |= knownHi;
+                continue;
+            }
+            int placed = 0;
+            for (int unit = 0; unit < 27; unit++) {
+                for (int value = 0; value < 9; value++) {
+                    final long inLo = lo[value] & UNITS_LO[unit], inHi = hi[value] & UNITS_HI[unit];
+                    final int count = Long.bitCount(inLo) + Long.bitCount(inHi);
+                    if (count == 1 && ((inLo & twiceLo) | (inHi & twiceHi)) != 0) {
+                        place(value, inLo, inHi);
+                        twiceLo &= ~inLo;
+                        twiceHi &= ~inHi;
+                        loners++;
+                        placed++;
+                    }
+                }
+            }
+            if (placed == 0) {
+                knownCells = Long.bitCount(~twiceLo) + Long.bitCount(~twiceHi & HI_CELLS);
+                return true;
+            }
+        }
+    }
+
+    private void removeFromPeers(final int value, final int i) {
+        final long peersLo = lo[value] & PEERS_LO[i], peersHi = hi[value] & PEERS_HI[i];
+        reduces += Long.bitCount(peersLo) + Long.bitCount(peersHi);
+        lo[value] &= ~peersLo;
+        hi[value] &= ~peersHi;
+    }
+
+    private void place(final int value, final long cellLo, final long cellHi) {
+        for (int other = 0; other < 9; other++) {
+            if (other != value) {
+                lo[other] &= ~cellLo;
+                hi[other] &= ~cellHi;
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.hafthor;
+
+/**
+ * A flag for one thread to ask a search on another to stop, e.g. when the request it is solving for has been given up
+ * on. The search checks it before each guess, so it stops within one guess and its propagation of being cancelled. One
+ * token can be shared by any number of searches, to cancel them all at once.
+ */
+public final class CancellationToken {
+    /**
+     * A token that is never cancelled.
+     */
+    public static final CancellationToken NONE = new CancellationToken();
+
+    private volatile boolean cancelled;
+
+    /**
+     * Asks every search using the token to stop. Cancelling {@link #NONE} does nothing.
+     */
+    public void cancel() {
+        if (this != NONE)
+            cancelled = true;
+    }
+
+    /**
+     * Returns true once the token has been cancelled.
+     * @return true once the token has been cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
\ No newline at end of file
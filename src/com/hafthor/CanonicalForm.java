@@ -0,0 +1,263 @@
+package com.hafthor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The canonical form of a puzzle's known values, which is the same for all puzzles that are the same up to relabeling
+ * the values, reordering the rows within a band of three, the bands, the columns within a stack of three, or the
+ * stacks, and transposing. It is the smallest of all those puzzles, reading the cells row by row, with the values
+ * relabeled in order of first appearance, and unknown cells larger than any value. Putting unknown cells last, rather
+ * than first, means far fewer transformations tie for the first rows, which makes finding the smallest much quicker.
+ * <p>
+ * Also keeps the transformation from the puzzle to its canonical form, so that a solution found for the canonical form
+ * can be mapped back to the puzzle, or the other way around.
+ */
+public final class CanonicalForm {
+    // puzzles with too few known values to tell many transformations apart aren't worth the search
+    private static final int MAX_STATES = 1 << 16;
+    private static final int UNKNOWN = 10; // larger than any canonical value
+
+    private final boolean transposed;
+    private final int[] rows, cols; // the puzzle's row and column at each canonical row and column
+    private final int[] labels; // the canonical value of each of the puzzle's values, zero-based
+    private final String key;
+
+    private CanonicalForm(final State state, final String key) {
+        transposed = state.transposed;
+        rows = new int[9];
+        cols = new int[9];
+        labels = new int[9];
+        for (int n = 0; n < 9; n++) {
+            rows[n] = state.row(n);
+            cols[n] = state.col(n);
+        }
+        // values that aren't known anywhere in the puzzle get the remaining labels in order
+        int next = state.nextLabel;
+        for (int value = 0; value < 9; value++) {
+            final int label = state.label(value + 1);
+            labels[value] = label != 0 ? label - 1 : next++ - 1;
+        }
+        this.key = key;
+    }
+
+    /**
+     * Returns the canonical form of a puzzle's known values, or null if it has so few known values that finding it
+     * would take too long, which is only the case for puzzles with far too few to have only one solution.
+     * @param puzzle the puzzle's cells, as 9-bit bitmasks of possible values
+     * @return the canonical form of the puzzle's known values, or null if it has too few
+     */
+    static CanonicalForm of(final short[] puzzle) {
+        // the known values of the puzzle, 1 to 9, or 0 if unknown, as is and transposed
+        final int[][] values = new int[2][9 * 9];
+        for (int i = 0; i < 9 * 9; i++) {
+            final int value = Integer.bitCount(puzzle[i]) == 1 ? 1 + Integer.numberOfTrailingZeros(puzzle[i]) : 0;
+            values[0][i] = value;
+            values[1][(i % 9) * 9 + i / 9] = value;
+        }
+
+        // build the first row of the canonical form cell by cell, and the others row by row, keeping every partial
+        // transformation that gives the smallest one so far
+        List<State> states = new ArrayList<>(), next = new ArrayList<>();
+        states.add(new State(false));
+        states.add(new State(true));
+        final StringBuilder key = new StringBuilder(9 * 9);
+        for (int c = 0; c < 9; c++) {
+            int min = UNKNOWN + 1;
+            for (final State state : states) {
+                final int[] grid = values[state.transposed ? 1 : 0];
+                final int rowChoices = c == 0 ? state.rowChoices(0) : 1 << state.row(0);
+                for (int rs = rowChoices; rs != 0; rs &= rs - 1) {
+                    final int row = Integer.numberOfTrailingZeros(rs);
+                    for (int cs = state.colChoices(c); cs != 0; cs &= cs - 1) {
+                        final int col = Integer.numberOfTrailingZeros(cs);
+                        final int value = grid[row * 9 + col];
+                        final int label = value == 0 ? UNKNOWN : state.label(value) != 0 ? state.label(value) :
+                                state.nextLabel;
+                        if (label > min)
+                            continue;
+                        if (label < min) {
+                            min = label;
+                            next.clear();
+                        }
+                        next.add(state.with(row, c, col, value, label));
+                        if (next.size() > MAX_STATES)
+                            return null;
+                    }
+                }
+            }
+            appendKey(key, min);
+            final List<State> t = states;
+            states = next;
+            next = t;
+            next.clear();
+        }
+        for (int r = 1; r < 9; r++) {
+            long min = Long.MAX_VALUE;
+            for (final State state : states) {
+                final int[] grid = values[state.transposed ? 1 : 0];
+                for (int rs = state.rowChoices(r); rs != 0; rs &= rs - 1) {
+                    final int row = Integer.numberOfTrailingZeros(rs);
+                    // the row's labels, 4 bits each, the first cell in the highest bits, so rows compare as numbers
+                    long code = 0, labels = state.labels;
+                    int nextLabel = state.nextLabel;
+                    for (int c = 0; c < 9; c++) {
+                        final int value = grid[row * 9 + state.col(c)];
+                        int label = UNKNOWN;
+                        if (value != 0) {
+                            label = (int) (labels >>> (4 * value)) & 0xf;
+                            if (label == 0) {
+                                label = nextLabel++;
+                                labels |= (long) label << (4 * value);
+                            }
+                        }
+                        code = code << 4 | label;
+                    }
+                    if (code > min)
+                        continue;
+                    if (code < min) {
+                        min = code;
+                        next.clear();
+                    }
+                    next.add(state.withRow(r, row, labels, nextLabel));
+                    if (next.size() > MAX_STATES)
+                        return null;
+                }
+            }
+            for (int c = 8; c >= 0; c--)
+                appendKey(key, (int) (min >>> (4 * c)) & 0xf);
+            final List<State> t = states;
+            states = next;
+            next = t;
+            next.clear();
+        }
+        return new CanonicalForm(states.get(0), key.toString());
+    }
+
+    private static void appendKey(final StringBuilder key, final int label) {
+        key.append(label == UNKNOWN ? '.' : (char) ('0' + label));
+    }
+
+    /**
+     * Returns the canonical form as 81 characters, a digit for each known value and a period for each unknown one.
+     * Puzzles with the same key are the same up to the transformations above.
+     * @return the canonical form as 81 characters
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Maps a grid of the puzzle, e.g. its solution, to the canonical form's rows, columns and values.
+     * @param grid the cells, as 9-bit bitmasks of possible values
+     * @return the mapped cells
+     */
+    short[] toCanonical(final short[] grid) {
+        final short[] mapped = new short[9 * 9];
+        for (int r = 0; r < 9; r++)
+            for (int c = 0; c < 9; c++)
+                mapped[r * 9 + c] = relabel(grid[index(r, c)], false);
+        return mapped;
+    }
+
+    /**
+     * Maps a grid in the canonical form's rows, columns and values, e.g. its solution, back to the puzzle's.
+     * @param grid the cells, as 9-bit bitmasks of possible values
+     * @return the mapped cells
+     */
+    short[] fromCanonical(final short[] grid) {
+        final short[] mapped = new short[9 * 9];
+        for (int r = 0; r < 9; r++)
+            for (int c = 0; c < 9; c++)
+                mapped[index(r, c)] = relabel(grid[r * 9 + c], true);
+        return mapped;
+    }
+
+    /**
+     * Returns the puzzle's cell at a canonical row and column.
+     */
+    private int index(final int r, final int c) {
+        return transposed ? cols[c] * 9 + rows[r] : rows[r] * 9 + cols[c];
+    }
+
+    private short relabel(final short cell, final boolean inverse) {
+        int mapped = 0;
+        for (int value = 0; value < 9; value++) {
+            if (inverse ? (cell & (1 << labels[value])) != 0 : (cell & (1 << value)) != 0)
+                mapped |= 1 << (inverse ? value : labels[value]);
+        }
+        return (short) mapped;
+    }
+
+    /**
+     * A partial transformation, packed into longs of 4-bit fields, since there can be many of them.
+     */
+    private static final class State {
+        private final boolean transposed;
+        private final long rows, cols; // the puzzle's row and column at each canonical one, once chosen
+        private final int usedRows, usedCols;
+        private final long labels; // the canonical value of each of the puzzle's values 1 to 9, or 0 if not yet seen
+        private final int nextLabel;
+
+        private State(final boolean transposed) {
+            this(transposed, 0, 0, 0, 0, 0, 1);
+        }
+
+        private State(final boolean transposed, final long rows, final long cols, final int usedRows,
+                      final int usedCols, final long labels, final int nextLabel) {
+            this.transposed = transposed;
+            this.rows = rows;
+            this.cols = cols;
+            this.usedRows = usedRows;
+            this.usedCols = usedCols;
+            this.labels = labels;
+            this.nextLabel = nextLabel;
+        }
+
+        private int row(final int r) {
+            return (int) (rows >>> (4 * r)) & 0xf;
+        }
+
+        private int col(final int c) {
+            return (int) (cols >>> (4 * c)) & 0xf;
+        }
+
+        private int label(final int value) {
+            return (int) (labels >>> (4 * value)) & 0xf;
+        }
+
+        private int rowChoices(final int r) {
+            return choices(usedRows, r, r > 0 ? row(r - 1) : 0);
+        }
+
+        private int colChoices(final int c) {
+            return choices(usedCols, c, c > 0 ? col(c - 1) : 0);
+        }
+
+        /**
+         * Returns the rows (or columns) that can come n-th, i.e. any unused one of an unused band at the start of a
+         * band, or else an unused one of the same band as the previous one.
+         */
+        private static int choices(final int used, final int n, final int previous) {
+            if (n % 3 != 0)
+                return ~used & (0b111 << (previous / 3 * 3));
+            int choices = 0;
+            for (int band = 0; band < 9; band += 3)
+                if ((used & (0b111 << band)) == 0)
+                    choices |= 0b111 << band;
+            return choices;
+        }
+
+        private State with(final int row, final int c, final int col, final int value, final int label) {
+            final boolean newLabel = value != 0 && label(value) == 0;
+            return new State(transposed, c == 0 ? rows | row : rows, cols | (long) col << (4 * c),
+                    c == 0 ? usedRows | 1 << row : usedRows, usedCols | 1 << col,
+                    newLabel ? labels | (long) label << (4 * value) : labels, newLabel ? nextLabel + 1 : nextLabel);
+        }
+
+        private State withRow(final int r, final int row, final long labels, final int nextLabel) {
+            return new State(transposed, rows | (long) row << (4 * r), cols, usedRows | 1 << row, usedCols, labels,
+                    nextLabel);
+        }
+    }
+}
\ No newline at end of file
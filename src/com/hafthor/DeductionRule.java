@@ -0,0 +1,221 @@
+package com.hafthor;
+
+/**
+ * A deduction that removes possible values from cells when known values and loners alone can't make any more progress.
+ * Rules work on the grid in the same form {@link Puzzle} uses, i.e. 81 cells of 9-bit bitmasks of possible values,
+ * and are tried in the order given to {@link Puzzle#setRules(DeductionRule...)}.
+ */
+public enum DeductionRule {
+    /**
+     * Two cells of a unit that can only be the same two values, which can then be removed from the unit's other cells.
+     */
+    NAKED_PAIRS("NakedPairs") {
+        @Override
+        public int apply(final short[] grid) {
+            return nakedSubsets(grid, 2);
+        }
+    },
+    /**
+     * Three cells of a unit that can only be the same three values, which can then be removed from the unit's other
+     * cells.
+     */
+    NAKED_TRIPLES("NakedTriples") {
+        @Override
+        public int apply(final short[] grid) {
+            return nakedSubsets(grid, 3);
+        }
+    },
+    /**
+     * Two values that can only be in the same two cells of a unit, which then can't be any other value.
+     */
+    HIDDEN_PAIRS("HiddenPairs") {
+        @Override
+        public int apply(final short[] grid) {
+            return hiddenSubsets(grid, 2);
+        }
+    },
+    /**
+     * Three values that can only be in the same three cells of a unit, which then can't be any other value.
+     */
+    HIDDEN_TRIPLES("HiddenTriples") {
+        @Override
+        public int apply(final short[] grid) {
+            return hiddenSubsets(grid, 3);
+        }
+    },
+    /**
+     * A value that can only be in one row or column of a sub-grid, which can then be removed from the rest of that row
+     * or column.
+     */
+    POINTING_PAIRS("PointingPairs") {
+        @Override
+        public int apply(final short[] grid) {
+            int removed = 0;
+            for (int unit = 18; unit < 27; unit++) {
+                for (short b = 1; b < 0x200; b <<= 1) {
+                    final int line = commonLine(grid, unit, b);
+                    if (line != -1)
+                        for (final int i : Puzzle.UNITS[line])
+                            if (Puzzle.CELL_UNITS[i][2] != unit)
+                                removed += remove(grid, i, b);
+                }
+            }
+            return removed;
+        }
+    },
+    /**
+     * A value that can only be in one sub-grid of a row or column, which can then be removed from the rest of that
+     * sub-grid.
+     */
+    BOX_LINE_REDUCTION("BoxLineReductions") {
+        @Override
+        public int apply(final short[] grid) {
+            int removed = 0;
+            for (int unit = 0; unit < 18; unit++) {
+                final int kind = unit < 9 ? 0 : 1; // row or column
+                for (short b = 1; b < 0x200; b <<= 1) {
+                    final int box = commonUnit(grid, unit, b, 2);
+                    if (box != -1)
+                        for (final int i : Puzzle.UNITS[box])
+                            if (Puzzle.CELL_UNITS[i][kind] != unit)
+                                removed += remove(grid, i, b);
+                }
+            }
+            return removed;
+        }
+    };
+
+    private final String label;
+
+    DeductionRule(final String label) {
+        this.label = label;
+    }
+
+    /**
+     * Returns the name of the rule as shown in {@link Puzzle#getStatistics()}.
+     * @return the name of the rule as shown in {@link Puzzle#getStatistics()}
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Applies the rule once to every unit of the grid.
+     * @param grid the puzzle's cells, which are modified in place
+     * @return the number of possible values removed
+     */
+    public abstract int apply(short[] grid);
+
+    private static int nakedSubsets(final short[] grid, final int size) {
+        int removed = 0;
+        for (int unit = 0; unit < 27; unit++)
+            removed += nakedSubsets(grid, Puzzle.UNITS[unit], size, 0, 0, 0, 0);
+        return removed;
+    }
+
+    /**
+     * Looks for subsets of the unit's cells, picked from the start position on, that together can only be as many
+     * values as there are cells, and removes those values from the rest of the unit.
+     */
+    private static int nakedSubsets(final short[] grid, final int[] unit, final int size, final int start,
+                                    final int cells, final int values, final int depth) {
+        if (depth == size) {
+            if (Integer.bitCount(values) != size)
+                return 0;
+            int removed = 0;
+            for (int m = 0; m < 9; m++) {
+                if ((cells & (1 << m)) == 0) {
+                    removed += Integer.bitCount(grid[unit[m]] & values);
+                    grid[unit[m]] &= ~values;
+                }
+            }
+            return removed;
+        }
+        int removed = 0;
+        for (int m = start; m < 9; m++) {
+            final int count = Integer.bitCount(grid[unit[m]]);
+            final int union = values | grid[unit[m]];
+            if (count >= 2 && count <= size && Integer.bitCount(union) <= size)
+                removed += nakedSubsets(grid, unit, size, m + 1, cells | (1 << m), union, depth + 1);
+        }
+        return removed;
+    }
+
+    private static int hiddenSubsets(final short[] grid, final int size) {
+        final int[] positions = new int[9];
+        int removed = 0;
+        for (int unit = 0; unit < 27; unit++) {
+            final int[] cells = Puzzle.UNITS[unit];
+            for (int value = 0; value < 9; value++) {
+                positions[value] = 0;
+                for (int m = 0; m < 9; m++)
+                    if ((grid[cells[m]] & (1 << value)) != 0)
+                        positions[value] |= 1 << m;
+            }
+            removed += hiddenSubsets(grid, cells, positions, size, 0, 0, 0, 0);
+        }
+        return removed;
+    }
+
+    /**
+     * Looks for subsets of values, picked from the start value on, that together can only be in as many of the unit's
+     * cells as there are values, and removes every other value from those cells.
+     */
+    private static int hiddenSubsets(final short[] grid, final int[] unit, final int[] positions, final int size,
+                                     final int start, final int values, final int cells, final int depth) {
+        if (depth == size) {
+            if (Integer.bitCount(cells) != size)
+                return 0;
+            int removed = 0;
+            for (int m = 0; m < 9; m++) {
+                if ((cells & (1 << m)) != 0) {
+                    removed += Integer.bitCount(grid[unit[m]] & ~values);
+                    grid[unit[m]] &= values;
+                }
+            }
+            return removed;
+        }
+        int removed = 0;
+        for (int value = start; value < 9; value++) {
+            final int count = Integer.bitCount(positions[value]);
+            final int union = cells | positions[value];
+            if (count >= 2 && count <= size && Integer.bitCount(union) <= size)
+                removed += hiddenSubsets(grid, unit, positions, size, value + 1, values | (1 << value), union,
+                        depth + 1);
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the row or column that all of a sub-grid's cells that could be a value share, or -1 if there is none, or
+     * the value could be in fewer than two cells.
+     */
+    private static int commonLine(final short[] grid, final int unit, final short b) {
+        final int row = commonUnit(grid, unit, b, 0);
+        return row != -1 ? row : commonUnit(grid, unit, b, 1);
+    }
+
+    /**
+     * Returns the unit of a kind, i.e. row, column or sub-grid, that all of a unit's cells that could be a value share,
+     * or -1 if there is none, or the value could be in fewer than two cells.
+     */
+    private static int commonUnit(final short[] grid, final int unit, final short b, final int kind) {
+        int common = -1, count = 0;
+        for (final int i : Puzzle.UNITS[unit]) {
+            if ((grid[i] & b) != 0) {
+                if (count++ == 0)
+                    common = Puzzle.CELL_UNITS[i][kind];
+                else if (common != Puzzle.CELL_UNITS[i][kind])
+                    return -1;
+            }
+        }
+        return count >= 2 ? common : -1;
+    }
+
+    private static int remove(final short[] grid, final int i, final short b) {
+        if ((grid[i] & b) == 0)
+            return 0;
+        grid[i] &= ~b;
+        return 1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,173 @@
+package com.hafthor;
+
+/**
+ * Solves a puzzle as an exact cover problem with Knuth's Algorithm X on dancing links. Each possible value of each
+ * cell is a row covering four of 324 constraints, i.e. that the cell has a value, and that its row, column and box
+ * have the value, and a solution is a set of rows covering each constraint exactly once. Always branching on the
+ * constraint with the fewest rows left finds the forced moves that propagation would, without any separate
+ * propagation step, and keeps the search narrow on pathological grids.
+ * <p>
+ * The links are kept in int arrays allocated once, for every row there could be, rather than in a node object each,
+ * and are rebuilt from the grid for every search. A solver can be reused for any number of searches, but only by one
+ * thread at a time.
+ */
+public final class DlxSolver implements Solver {
+    private static final int COLUMNS = 4 * 9 * 9;
+    private static final int ROOT = 0;
+    private static final int NODES = 1 + COLUMNS + 4 * 9 * 9 * 9;
+
+    // the links of each node, the column header of each node, the possible value each node's row stands for as cell
+    // times 9 plus the zero-based value, and the number of rows left in each column
+    private final int[] left = new int[NODES], right = new int[NODES], up = new int[NODES], down = new int[NODES];
+    private final int[] column = new int[NODES], candidate = new int[NODES];
+    private final int[] size = new int[1 + COLUMNS];
+
+    // a node of each row chosen so far, by search depth, and of the rows of the known cells
+    private final int[] chosen = new int[9 * 9], known = new int[9 * 9];
+    private final short[] solution = new short[9 * 9];
+
+    private int limit, solutions, guesses, backtracks;
+
+    @Override
+    public int solve(final short[] grid, final int limit) {
+        this.limit = limit;
+        solutions = guesses = backtracks = 0;
+        final int knownCount = build(grid);
+        if (knownCount >= 0 && limit > 0)
+            search(0);
+        if (solutions > 0)
+            System.arraycopy(solution, 0, grid, 0, grid.length);
+        return solutions;
+    }
+
+    @Override
+    public int getGuesses() {
+        return guesses;
+    }
+
+    @Override
+    public int getBacktracks() {
+        return backtracks;
+    }
+
+    /**
+     * Links a row for every possible value of every cell, and covers the columns of the rows of known cells.
+     * @return the number of known cells, or -1 if two of them conflict
+     */
+    private int build(final short[] grid) {
+        for (int c = 0; c <= COLUMNS; c++) {
+            left[c] = c == 0 ? COLUMNS : c - 1;
+            right[c] = c == COLUMNS ? 0 : c + 1;
+            up[c] = down[c] = c;
+            size[c] = 0;
+        }
+        int node = 1 + COLUMNS, knownCount = 0;
+        for (int i = 0; i < 9 * 9; i++) {
+            final int row = i / 9, col = i % 9, box = (row / 3) * 3 + col / 3;
+            final short cell = grid[i];
+            for (int values = cell; values != 0; values &= values - 1) {
+                final int value = Integer.numberOfTrailingZeros(values);
+                final int first = node;
+                link(node++, first, 1 + i, i * 9 + value);
+                link(node++, first, 1 + 9 * 9 + row * 9 + value, i * 9 + value);
+                link(node++, first, 1 + 2 * 9 * 9 + col * 9 + value, i * 9 + value);
+                link(node++, first, 1 + 3 * 9 * 9 + box * 9 + value, i * 9 + value);
+                if (values == cell && (cell & (cell - 1)) == 0)
+                    known[knownCount++] = first;
+            }
+        }
+        // a known cell's row must be chosen, which fails if another known cell already covered one of its columns
+        for (int k = 0; k < knownCount; k++) {
+            final int r = known[k];
+            int j = r;
+            do {
+                if (right[left[column[j]]] != column[j])
+                    return -1;
+                j = right[j];
+            } while (j != r);
+            do {
+                cover(column[j]);
+                j = right[j];
+            } while (j != r);
+            solution[candidate[r] / 9] = (short) (1 << (candidate[r] % 9));
+        }
+        return knownCount;
+    }
+
+    /**
+     * Appends a node to the bottom of a column, and to the end of the row starting at the first node.
+     */
+    private void link(final int node, final int first, final int c, final int cand) {
+        column[node] = c;
+        candidate[node] = cand;
+        up[node] = up[c];
+        down[node] = c;
+        down[up[c]] = node;
+        up[c] = node;
+        size[c]++;
+        left[node] = node == first ? node : node - 1;
+        right[node] = first;
+        right[left[node]] = node;
+        left[first] = node;
+    }
+
+    /**
+     * Chooses rows for the remaining columns.
+     * @return true once the limit is reached, in which case the links are left as they are
+     */
+    private boolean search(final int depth) {
+        if (right[ROOT] == ROOT) {
+            for (int k = 0; k < depth; k++)
+                solution[candidate[chosen[k]] / 9] = (short) (1 << (candidate[chosen[k]] % 9));
+            return ++solutions >= limit;
+        }
+        // the column with the fewest rows left
+        int c = right[ROOT];
+        for (int j = right[c]; j != ROOT && size[c] > 1; j = right[j])
+            if (size[j] < size[c])
+                c = j;
+        if (size[c] == 0) {
+            backtracks++;
+            return false;
+        }
+        final boolean guessing = size[c] > 1;
+        cover(c);
+        for (int r = down[c]; r != c; r = down[r]) {
+            if (guessing)
+                guesses++;
+            chosen[depth] = r;
+            for (int j = right[r]; j != r; j = right[j])
+                cover(column[j]);
+            if (search(depth + 1))
+                return true;
+            for (int j = left[r]; j != r; j = left[j])
+                uncover(column[j]);
+        }
+        uncover(c);
+        return false;
+    }
+
+    private void cover(final int c) {
+        right[left[c]] = right[c];
+        left[right[c]] = left[c];
+        for (int i = down[c]; i != c; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                up[down[j]] = up[j];
+                down[up[j]] = down[j];
+                size[column[j]]--;
+            }
+        }
+    }
+
+    private void uncover(final int c) {
+        for (int i = up[c]; i != c; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                size[column[j]]++;
+                up[down[j]] = j;
+                down[up[j]] = j;
+            }
+        }
+        right[left[c]] = c;
+        left[right[c]] = c;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.hafthor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Helpers for the futures of puzzles being solved on an executor.
+ */
+final class Futures {
+    private Futures() {
+    }
+
+    /**
+     * Waits for a future, rethrowing the exception it failed with if that was unchecked, e.g. the
+     * {@link IllegalArgumentException} from a line that isn't a puzzle, rather than wrapping it.
+     * @param future the future to wait for
+     * @return the result of the future
+     */
+    static <T> T join(final CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.hafthor;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Chooses where to guess when a puzzle can't be solved any further without guessing. The grid is passed in the same
+ * form {@link Puzzle} uses, i.e. 81 cells of 9-bit bitmasks of possible values, and must not be modified.
+ */
+public interface GuessStrategy {
+    /**
+     * Guesses at the first unsolved cell, trying its possible values from lowest to highest.
+     */
+    GuessStrategy FIRST = (grid, random) -> firstUnsolved(grid, 0);
+
+    /**
+     * Guesses at the first unsolved cell from a random starting cell, trying its possible values from a random one.
+     */
+    GuessStrategy RANDOM = new GuessStrategy() {
+        @Override
+        public int selectCell(final short[] grid, final RandomGenerator random) {
+            return firstUnsolved(grid, random.nextInt(grid.length));
+        }
+
+        @Override
+        public int selectFirstValue(final RandomGenerator random) {
+            return random.nextInt(9);
+        }
+    };
+
+    /**
+     * Guesses at the unsolved cell with the fewest possible values (minimum remaining values), the first one on a tie,
+     * trying its possible values from lowest to highest. This keeps the search tree as narrow as possible.
+     */
+    GuessStrategy MRV = (grid, random) -> {
+        int best = -1, bestCount = 10;
+        for (int i = 0; i < grid.length && bestCount > 2; i++) {
+            final int count = Integer.bitCount(grid[i]);
+            if (count != 1 && count < bestCount) {
+                best = i;
+                bestCount = count;
+            }
+        }
+        return best;
+    };
+
+    /**
+     * Returns the cell to guess at next.
+     * @param grid the puzzle's cells
+     * @param random the puzzle's random number generator
+     * @return the index of a cell that isn't solved, or -1 if there are none
+     */
+    int selectCell(short[] grid, RandomGenerator random);
+
+    /**
+     * Returns the value to try first at the selected cell, after which the others are tried in order, wrapping around.
+     * @param random the puzzle's random number generator
+     * @return the zero-based value to try first
+     */
+    default int selectFirstValue(RandomGenerator random) {
+        return 0;
+    }
+
+    private static int firstUnsolved(final short[] grid, final int startingFrom) {
+        for (int i = 0; i < grid.length; i++)
+            if (Integer.bitCount(grid[(startingFrom + i) % grid.length]) != 1)
+                return (startingFrom + i) % grid.length;
+        return -1;
+    }
+}
\ No newline at end of file
@@ -1,7 +1,49 @@
 package com.hafthor;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 public class Main {
-    public static void main(final String[] args) {
+    /**
+     * Solves and prints the sample puzzles, then generates and prints some puzzles. Given an input and an output file,
+     * instead solves the puzzles in the input file, one per line, into the output file.
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length == 2) {
+            final long start = System.nanoTime();
+            final SolveTotals totals = new PuzzleFileSolver().solve(Path.of(args[0]), Path.of(args[1]));
+            System.out.printf("%s in %.3f s%n", totals.getStatistics(), (System.nanoTime() - start) / 1e9);
+            return;
+        }
+        int unsolvedCount = 0;
+        for (final String input : corpus()) {
+            final String[] ss = input.split("\n");
+            final Puzzle puzzle = new Puzzle(ss[1]);
+            puzzle.setName(ss[0]);
+            puzzle.solve();
+            if (puzzle.isSolved()) {
+                puzzle.print();
+                System.out.println("*** Solved ***" + puzzle.getStatistics());
+            } else {
+                System.out.println("*** Couldn't solve ***" + puzzle.getStatistics());
+                unsolvedCount++;
+            }
+        }
+        System.out.println("Unsolved: " + unsolvedCount);
+
+        for (int i = 0; i < 10; i++) {
+            final Puzzle puzzle = new Puzzle(i);
+            puzzle.setName("Generated #" + i);
+            puzzle.print();
+            System.out.println("Stats:" + puzzle.getStatistics());
+        }
+    }
+
+    /**
+     * Returns the sample puzzles, each as a name, a newline, and the puzzle itself.
+     * @return the sample puzzles
+     */
+    static String[] corpus() {
         final String input6 = "input6\n" +
                 "89. 625 ..." +
                 ".5. 8.7 962" +
@@ -235,33 +277,12 @@ public class Main {
                 "... 6.8 .3." +
                 "..7 ..9 ..."; // first generated puzzle
 
-        int unsolvedCount = 0;
-        for (final String input : new String[]{
+        return new String[]{
                 input6, input19, input25, input30, input46, input51,
                 input66, input71, input76, input87, input92, input97,
                 input102, input109, input114, input120, input126,
                 inputEasy, inputMedium, inputHard, inputExpert, inputEvil,
                 inputGen1
-        }) {
-            final String[] ss = input.split("\n");
-            final Puzzle puzzle = new Puzzle(ss[1]);
-            puzzle.setName(ss[0]);
-            puzzle.solve();
-            if (puzzle.isSolved()) {
-                puzzle.print();
-                System.out.println("*** Solved ***" + puzzle.getStatistics());
-            } else {
-                System.out.println("*** Couldn't solve ***" + puzzle.getStatistics());
-                unsolvedCount++;
-            }
-        }
-        System.out.println("Unsolved: " + unsolvedCount);
-
-        for (int i = 0; i < 10; i++) {
-            final Puzzle puzzle = new Puzzle(i);
-            puzzle.setName("Generated #" + i);
-            puzzle.print();
-            System.out.println("Stats:" + puzzle.getStatistics());
-        }
+        };
     }
 }
\ No newline at end of file
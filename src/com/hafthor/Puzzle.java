@@ -1,7 +1,20 @@
 package com.hafthor;
 
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A Sudoku puzzle solver and generator. Represents a puzzle as a 9x9 grid of 9-bit bitmasks, where each bit represents
@@ -11,23 +24,78 @@ import java.util.Random;
  */
 public class Puzzle {
     private static final short ALL_POSSIBLE = 0x1ff;
+    private static final Duration MAX_TIMEOUT = Duration.ofNanos(Long.MAX_VALUE);
 
-    private static Random random;
+    /**
+     * Guesses at the cell with the fewest possible values, trying them from a random one, to fill in an empty grid at
+     * random. Guessing at the first unsolved cell from a random one instead can take hundreds of millions of guesses.
+     */
+    private static final GuessStrategy RANDOM_FILL = new GuessStrategy() {
+        @Override
+        public int selectCell(final short[] grid, final RandomGenerator random) {
+            return MRV.selectCell(grid, random);
+        }
+
+        @Override
+        public int selectFirstValue(final RandomGenerator random) {
+            return random.nextInt(9);
+        }
+    };
+
+    /**
+     * The cells of each of the 27 units, i.e. the 9 rows, then the 9 columns, then the 9 sub-grids.
+     */
+    static final int[][] UNITS = new int[27][9];
+
+    /**
+     * The 3 units each cell belongs to, i.e. its row, column, and sub-grid.
+     */
+    static final int[][] CELL_UNITS = new int[9 * 9][3];
+
+    /**
+     * The 20 peers of each cell, i.e. the other cells that share its row, column, or sub-grid.
+     */
+    static final int[][] PEERS = new int[9 * 9][20];
+
+    static {
+        for (int n = 0; n < 9; n++) {
+            for (int m = 0; m < 9; m++) {
+                UNITS[n][m] = n * 9 + m;
+                UNITS[9 + n][m] = m * 9 + n;
+                UNITS[18 + n][m] = subGrid(n, m);
+            }
+        }
+        for (int i = 0; i < 9 * 9; i++) {
+            final int row = i / 9, col = i % 9;
+            CELL_UNITS[i][0] = row;
+            CELL_UNITS[i][1] = 9 + col;
+            CELL_UNITS[i][2] = 18 + gridAt(row, col);
+            int peers = 0;
+            for (int j = 0; j < 9 * 9; j++)
+                if (i != j && (j / 9 == row || j % 9 == col || gridAt(j / 9, j % 9) == gridAt(row, col)))
+                    PEERS[i][peers++] = j;
+        }
+    }
+
+    private RandomGenerator random;
 
     /**
      * Returns the random number generator used for solving when guessing is required.
      * @return the random number generator used for solving when guessing is required
      */
-    public static Random getRandom() {
+    public RandomGenerator getRandom() {
         return random;
     }
 
     /**
-     * Sets the random number generator used for solving when guessing is required.
+     * Sets the random number generator used for solving when guessing is required. Each puzzle has its own, so puzzles
+     * may be solved and generated on different threads at the same time. Any generator will do, e.g. a
+     * {@link java.util.SplittableRandom} split off for each puzzle, or {@link java.util.concurrent.ThreadLocalRandom}
+     * when reproducibility doesn't matter.
      * @param random the random number generator used for solving when guessing is required
      */
-    public static void setRandom(Random random) {
-        Puzzle.random = random;
+    public void setRandom(RandomGenerator random) {
+        this.random = random;
     }
 
     private String name;
@@ -50,6 +118,149 @@ public class Puzzle {
 
     private short[] puzzle;
 
+    // the number of known cells, and whether any cell has no possible values left, kept up to date as cells change,
+    // and recounted whenever the grid is replaced or changed all at once
+    private int knownCells;
+    private boolean contradiction;
+
+    /**
+     * How known values are propagated to the other cells of the puzzle while solving.
+     */
+    public enum Propagation {
+        /**
+         * Rescan the whole grid with {@link #solveExclusionary()} until nothing changes. Each rescan counts as a pass.
+         */
+        PASSES,
+        /**
+         * Only visit the peers of cells that became known, using a work queue, and stop as soon as a cell has no
+         * possible values left. Each drain of the queue counts as a pass.
+         */
+        QUEUE,
+        /**
+         * Propagate on a {@link Bitboard}, i.e. one 81-bit mask of cells per value, placing all the loners found in a
+         * pass at once, and stopping as soon as a cell has no possible values left. Each pass over the whole bitboard
+         * counts as a pass.
+         */
+        BITBOARD
+    }
+
+    private Propagation propagation = Propagation.PASSES;
+
+    /**
+     * Returns how known values are propagated to the other cells of the puzzle while solving.
+     * @return how known values are propagated to the other cells of the puzzle while solving
+     */
+    public Propagation getPropagation() {
+        return propagation;
+    }
+
+    /**
+     * Sets how known values are propagated to the other cells of the puzzle while solving. Reduces and loners count
+     * the same things either way, though a queue stops reducing at the first contradiction. Passes are not comparable.
+     * @param propagation how known values are propagated to the other cells of the puzzle while solving
+     */
+    public void setPropagation(Propagation propagation) {
+        this.propagation = propagation;
+        if (propagation == Propagation.QUEUE && queue == null)
+            queue = new int[9 * 9];
+        if (propagation == Propagation.BITBOARD && bitboard == null)
+            bitboard = new Bitboard();
+    }
+
+    private Bitboard bitboard;
+
+    private DeductionRule[] rules = {};
+
+    private SolutionCache solutionCache;
+
+    private SolverListener listener = SolverListener.NONE;
+
+    private Solver solver;
+
+    /**
+     * Returns the listener that gets told what happens while solving.
+     * @return the listener that gets told what happens while solving
+     */
+    public SolverListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Sets a listener to tell what happens while solving, e.g. to time it or export metrics.
+     * @param listener the listener, or null for none
+     */
+    public void setListener(SolverListener listener) {
+        this.listener = listener != null ? listener : SolverListener.NONE;
+    }
+
+    /**
+     * Returns the search engine that solving hands the grid to once propagation stalls, if any.
+     * @return the search engine, or null if the puzzle guesses and backtracks itself
+     */
+    public Solver getSolver() {
+        return solver;
+    }
+
+    /**
+     * Sets a search engine for solving, and counting solutions, to hand the grid to once propagation stalls, instead
+     * of guessing and backtracking itself, e.g. a {@link DlxSolver}. The guess strategy is then ignored, and the
+     * engine's guesses and backtracks are added to the statistics.
+     * @param solver the search engine, or null for the puzzle to guess and backtrack itself
+     */
+    public void setSolver(Solver solver) {
+        this.solver = solver;
+    }
+
+    /**
+     * Returns the cache of solutions that solving looks in first, if any.
+     * @return the cache of solutions that solving looks in first, or null if none
+     */
+    public SolutionCache getSolutionCache() {
+        return solutionCache;
+    }
+
+    /**
+     * Sets a cache of solutions for solving to look in first, and to add to, which may be shared with other puzzles.
+     * Solving the same puzzle up to symmetry again then only takes finding its canonical form, but finding that takes
+     * about as long as solving an easy puzzle, so it only pays for puzzles that need guessing.
+     * @param solutionCache the cache of solutions, or null for none
+     */
+    public void setSolutionCache(SolutionCache solutionCache) {
+        this.solutionCache = solutionCache;
+    }
+
+    /**
+     * Returns the deduction rules tried, in order, when known values and loners can't make any more progress.
+     * @return the deduction rules tried, in order, when known values and loners can't make any more progress
+     */
+    public DeductionRule[] getRules() {
+        return rules.clone();
+    }
+
+    /**
+     * Sets the deduction rules to try, in order, when known values and loners can't make any more progress. As soon as
+     * a rule removes a possible value, propagation goes back to known values and loners, and then starts over with the
+     * first rule. There are none by default, leaving the rest to guessing. Cheap rules should usually come first.
+     * @param rules the deduction rules to try, in order
+     */
+    public void setRules(DeductionRule... rules) {
+        this.rules = rules.clone();
+    }
+
+    // cells that became known, but have not been removed from their peers yet
+    private int[] queue;
+    private int queueHead, queueTail;
+
+    // grids to backtrack to by guessing depth, and the last solution found while guessing
+    private final short[][] gridStack = new short[9 * 9][];
+    private short[] lastSolution;
+
+    // the rest of the explicit stack of guesses by depth: the cell guessed at, the value tried first and how many have
+    // been tried, and the count of known cells and the contradiction flag to backtrack to
+    private int[] guessCells, firstValues, triedValues, knownCellsCopies;
+    private boolean[] contradictionCopies;
+    private int searchDepth = -1; // the depth of the guess being tried, or -1 if there is none left
+
     private int passes;
 
     /**
@@ -82,6 +293,17 @@ public class Puzzle {
         return loners;
     }
 
+    private final int[] eliminations = new int[DeductionRule.values().length];
+
+    /**
+     * Returns the number of possible values removed by a deduction rule while solving.
+     * @param rule the deduction rule
+     * @return the number of possible values removed by the deduction rule while solving
+     */
+    public int getEliminations(DeductionRule rule) {
+        return eliminations[rule.ordinal()];
+    }
+
     private int guesses;
 
     /**
@@ -105,13 +327,42 @@ public class Puzzle {
     private int solutions;
 
     /**
-     * Returns the number of solutions possible for the puzzle.
-     * @return the number of solutions possible for the puzzle
+     * Returns the number of solutions found for the puzzle, which is at most the solution limit, so with the default
+     * limit of {@value #DEFAULT_SOLUTION_LIMIT}, a count of {@value #DEFAULT_SOLUTION_LIMIT} means that many or more.
+     * @return the number of solutions found for the puzzle, which is at most the solution limit
      */
     public int getSolutions() {
         return solutions;
     }
 
+    /**
+     * The number of solutions at which solving stops looking for more, unless set otherwise.
+     */
+    public static final int DEFAULT_SOLUTION_LIMIT = 2;
+
+    private int solutionLimit = DEFAULT_SOLUTION_LIMIT;
+
+    /**
+     * Returns the number of solutions at which solving stops looking for more.
+     * @return the number of solutions at which solving stops looking for more
+     */
+    public int getSolutionLimit() {
+        return solutionLimit;
+    }
+
+    /**
+     * Sets the number of solutions at which solving stops looking for more. The default of
+     * {@value #DEFAULT_SOLUTION_LIMIT} is enough to tell whether a puzzle has only one solution. Raise it to count
+     * more, but beware that a puzzle with few givens can have millions of solutions.
+     * <p>
+     * Solving used to search for every solution, so {@link #getSolutions()} counted them all. Now that it stops at
+     * this limit, set it to {@link Integer#MAX_VALUE} to search for every solution again.
+     * @param solutionLimit the number of solutions at which solving stops looking for more
+     */
+    public void setSolutionLimit(int solutionLimit) {
+        this.solutionLimit = solutionLimit;
+    }
+
     private int rounds;
 
     /**
@@ -131,6 +382,7 @@ public class Puzzle {
      */
     public Puzzle(final String s) {
         random = new Random(0);
+        puzzle = new short[9 * 9];
         parsePuzzle(s);
     }
 
@@ -139,8 +391,9 @@ public class Puzzle {
      * for an unknown value. Other characters are ignored. The provided random number generator is used for solving
      * when guessing is required.
      */
-    public Puzzle(final String s, Random r) {
+    public Puzzle(final String s, RandomGenerator r) {
         random = r;
+        puzzle = new short[9 * 9];
         parsePuzzle(s);
     }
 
@@ -151,20 +404,118 @@ public class Puzzle {
      */
     public Puzzle(final String s, int seed) {
         random = new Random(seed);
+        puzzle = new short[9 * 9];
+        parsePuzzle(s);
+    }
+
+    /**
+     * Constructs a puzzle from ASCII text without creating a string, e.g. straight from a buffer read from a file, in
+     * the same format as {@link #Puzzle(String)}, except that a zero may also be used for an unknown value. A
+     * zero-seeded random number generator is used for solving when guessing is required.
+     * @param bytes the text
+     * @param offset where the puzzle's text starts
+     * @param length the length of the puzzle's text
+     */
+    public Puzzle(final byte[] bytes, final int offset, final int length) {
+        random = new Random(0);
+        puzzle = new short[9 * 9];
+        parsePuzzle(bytes, offset, length);
+    }
+
+    /**
+     * Replaces the puzzle with another, in the same format as {@link #Puzzle(String)}, clearing all its statistics but
+     * keeping its settings, e.g. its propagation, rules and listener, and the buffers it has allocated, so that solving
+     * many puzzles one after the other on the same one allocates nothing once they have all been allocated. The random
+     * number generator is kept as it is, not reseeded, so guessing at random may go differently than on a new puzzle.
+     * @param s the puzzle's text
+     * @throws IllegalArgumentException if the text doesn't have 81 cells, which leaves the puzzle to be reset again
+     */
+    public void reset(final CharSequence s) {
+        clearStatistics();
         parsePuzzle(s);
     }
 
-    private void parsePuzzle(final String s) {
-        final short[] grid = new short[9 * 9];
+    /**
+     * Replaces the puzzle with another from ASCII text, in the same format as {@link #Puzzle(byte[], int, int)}, the
+     * same way as {@link #reset(CharSequence)}.
+     * @param bytes the text
+     * @param offset where the puzzle's text starts
+     * @param length the length of the puzzle's text
+     * @throws IllegalArgumentException if the text doesn't have 81 cells, which leaves the puzzle to be reset again
+     */
+    public void reset(final byte[] bytes, final int offset, final int length) {
+        clearStatistics();
+        parsePuzzle(bytes, offset, length);
+    }
+
+    private void clearStatistics() {
+        name = null;
+        passes = reduces = loners = guesses = backtracks = solutions = rounds = 0;
+        Arrays.fill(eliminations, 0);
+        contradiction = false;
+        clearQueue();
+    }
+
+    private void parsePuzzle(final CharSequence s) {
+        final short[] grid = puzzle;
+        knownCells = 0;
+        int i = 0;
+        for (int p = 0; p < s.length(); p++) {
+            final short cell = parseCell(s.charAt(p), false);
+            if (cell != 0) {
+                if (i == grid.length)
+                    throw new IllegalArgumentException();
+                grid[i++] = cell;
+                if (cell != ALL_POSSIBLE)
+                    knownCells++;
+            }
+        }
+        if (i != grid.length)
+            throw new IllegalArgumentException();
+    }
+
+    private void parsePuzzle(final byte[] bytes, final int offset, final int length) {
+        final short[] grid = puzzle;
+        knownCells = 0;
         int i = 0;
-        for (final char cellChar : s.toCharArray())
-            if ('1' <= cellChar && cellChar <= '9')
-                grid[i++] = (short) (1 << (Integer.parseInt(String.valueOf(cellChar)) - 1));
-            else if (cellChar == '.')
-                grid[i++] = ALL_POSSIBLE;
+        for (int p = offset; p < offset + length; p++) {
+            final short cell = parseCell(bytes[p], true);
+            if (cell != 0) {
+                if (i == grid.length)
+                    throw new IllegalArgumentException();
+                grid[i++] = cell;
+                if (cell != ALL_POSSIBLE)
+                    knownCells++;
+            }
+        }
         if (i != grid.length)
             throw new IllegalArgumentException();
-        this.puzzle = grid;
+    }
+
+    /**
+     * Returns true if a line of ASCII text has nothing but spaces and control characters, e.g. a blank line between
+     * puzzles, one per line, which is skipped rather than parsed as a puzzle.
+     * @param bytes the text
+     * @param start where the line starts
+     * @param end where the line ends, exclusive
+     * @return true if the line is blank
+     */
+    static boolean isBlank(final byte[] bytes, final int start, final int end) {
+        for (int p = start; p < end; p++)
+            if (bytes[p] > ' ')
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns the bitmask of possible values for a character of a puzzle's text, or 0 if the character isn't a cell.
+     */
+    private static short parseCell(final int c, final boolean zeroIsUnknown) {
+        if ('1' <= c && c <= '9')
+            return (short) (1 << (c - '1'));
+        if (c == '.' || c == '0' && zeroIsUnknown)
+            return ALL_POSSIBLE;
+        return 0;
     }
 
     /**
@@ -180,7 +531,7 @@ public class Puzzle {
      * Generates one of 6,670,903,752,021,072,936,960 possible puzzles using the provided random number generator.
      * The puzzle is guaranteed to be solvable, and to have only one solution.
      */
-    public Puzzle(Random r) {
+    public Puzzle(RandomGenerator r) {
         random = r;
         generatePuzzle();
     }
@@ -194,38 +545,135 @@ public class Puzzle {
         generatePuzzle();
     }
 
+    /**
+     * Generates a puzzle by filling in a whole grid at random, then taking away givens in random order for as long as
+     * the puzzle still has only one solution, until no more can be taken away or only the minimum number are left.
+     * This is much faster than generating puzzles from 17 random givens, and the puzzle is likewise guaranteed to be
+     * solvable, and to have only one solution.
+     * @param r the random number generator to generate with, and to use for solving when guessing is required
+     * @param minGivens the number of givens at which to stop taking any more away
+     * @return the generated puzzle
+     */
+    public static Puzzle generateFromSolution(RandomGenerator r, int minGivens) {
+        final Puzzle generated = new Puzzle(r, ALL_POSSIBLE);
+        generated.setPropagation(Propagation.QUEUE);
+        generated.removeGivens(minGivens);
+        generated.setPropagation(Propagation.PASSES);
+        return generated;
+    }
+
+    /**
+     * Generates a puzzle by filling in a whole grid at random, then taking away givens in random order for as long as
+     * the puzzle still has only one solution.
+     * @param seed the random number seed to generate with, and to use for solving when guessing is required
+     * @return the generated puzzle
+     */
+    public static Puzzle generateFromSolution(int seed) {
+        return generateFromSolution(new Random(seed), 0);
+    }
+
+    /**
+     * Constructs a puzzle with every cell set to the same bitmask.
+     */
+    private Puzzle(final RandomGenerator r, final short cell) {
+        random = r;
+        puzzle = new short[9 * 9];
+        Arrays.fill(puzzle, cell);
+        recount();
+    }
+
+    /**
+     * Constructs a puzzle from a grid of 9-bit bitmasks of possible values, which it takes ownership of.
+     */
+    Puzzle(final short[] grid) {
+        random = new Random(0);
+        puzzle = grid;
+        recount();
+    }
+
+    private void removeGivens(final int minGivens) {
+        final short[] grid = puzzle, givens = new short[9 * 9];
+        countSolutions(1, RANDOM_FILL);
+        System.arraycopy(grid, 0, givens, 0, grid.length);
+
+        final int[] order = new int[9 * 9];
+        for (int i = 0; i < order.length; i++) {
+            final int j = random.nextInt(i + 1); // inside-out shuffle
+            order[i] = order[j];
+            order[j] = i;
+        }
+        int givenCount = givens.length;
+        for (int n = 0; n < order.length && givenCount > minGivens; n++) {
+            // the given can go if there's no solution with any other value there
+            final int i = order[n];
+            final short given = givens[i];
+            givens[i] = (short) (ALL_POSSIBLE & ~given);
+            System.arraycopy(givens, 0, grid, 0, grid.length);
+            if (countSolutions(1) == 0) {
+                givens[i] = ALL_POSSIBLE;
+                givenCount--;
+            } else {
+                givens[i] = given; // needed to keep the solution unique
+            }
+        }
+        puzzle = givens;
+        recount();
+        passes = 0;
+        loners = 0;
+        Arrays.fill(eliminations, 0);
+        reduces = 0;
+        guesses = 0;
+        backtracks = 0;
+    }
+
     private void generatePuzzle() {
-        final short[] grid = new short[9 * 9];
-        short[] unsolved = null;
-        for (int rounds = 0; solutions != 1 || !isSolved(); rounds++) {
-            Arrays.fill(grid, ALL_POSSIBLE);
+        final short[] grid = new short[9 * 9], unsolved = new short[9 * 9], solved = new short[9 * 9];
+        for (int rounds = 0; solutions == 0; rounds++) {
+            Arrays.fill(unsolved, ALL_POSSIBLE);
             for (int seeds = 0; seeds < 17; seeds++) {
-                final int i = random.nextInt(grid.length);
-                if (grid[i] != ALL_POSSIBLE)
+                final int i = random.nextInt(unsolved.length);
+                if (unsolved[i] != ALL_POSSIBLE)
                     seeds--; // we already generated this location, try again
                 else
-                    grid[i] = (short) (1 << random.nextInt(9));
+                    unsolved[i] = (short) (1 << random.nextInt(9));
             }
-            unsolved = grid.clone();
+            System.arraycopy(unsolved, 0, grid, 0, grid.length);
 
             puzzle = grid;
-            solutions = 0;
             this.rounds = rounds;
-            solve(true, true);
+            countSolutions(2);
+        }
+        while (solutions > 1) {
+            // more than one solution, so give away the value, from the last solution found, of a cell that can't be
+            // solved without guessing
+            System.arraycopy(grid, 0, solved, 0, grid.length);
+            System.arraycopy(unsolved, 0, grid, 0, grid.length);
+            recount();
+            propagate();
+            int i;
+            do {
+                i = random.nextInt(grid.length);
+            } while (isPow2(grid[i]));
+            unsolved[i] = solved[i];
+            System.arraycopy(unsolved, 0, grid, 0, grid.length);
+            countSolutions(2);
         }
         puzzle = unsolved;
+        recount();
         passes = 0;
         loners = 0;
+        Arrays.fill(eliminations, 0);
         reduces = 0;
         guesses = 0;
         backtracks = 0;
     }
 
     /**
-     * Solves the puzzle. If the puzzle is not solvable, it will be left in an unsolved state.
+     * Solves the puzzle. If the puzzle is not solvable, it will be left in an unsolved state. The search stops at the
+     * solution limit, {@value #DEFAULT_SOLUTION_LIMIT} unless set otherwise, see {@link #setSolutionLimit(int)}.
      */
     public void solve() {
-        solve(false, false);
+        solve(false, GuessStrategy.FIRST);
     }
 
     /**
@@ -234,31 +682,424 @@ public class Puzzle {
      * @param randomGuessLocation - if true, guess at a random location instead of the first unsolved location
      */
     public void solve(boolean quiet, boolean randomGuessLocation) {
+        solve(quiet, randomGuessLocation ? GuessStrategy.RANDOM : GuessStrategy.FIRST);
+    }
+
+    /**
+     * Solves the puzzle. If the puzzle is not solvable, it will be left in an unsolved state. The search stops at the
+     * solution limit, {@value #DEFAULT_SOLUTION_LIMIT} unless set otherwise, see {@link #setSolutionLimit(int)}.
+     * @param quiet - if true, don't print anything
+     * @param guessStrategy - where to guess when the puzzle can't be solved any further without guessing
+     */
+    public void solve(boolean quiet, GuessStrategy guessStrategy) {
+        listener.solveStarted(this);
+        solveWithCache(quiet, guessStrategy);
+        listener.solveEnded(this);
+    }
+
+    private void solveWithCache(final boolean quiet, final GuessStrategy guessStrategy) {
+        // the key is only of the known values, so a puzzle that is already part way solved, or has had candidates
+        // taken out some other way, may not have the same solutions as the one cached
+        final CanonicalForm form = solutionCache != null && hasOnlyGivens() ? CanonicalForm.of(puzzle) : null;
+        if (form != null) {
+            final SolutionCache.Entry entry = solutionCache.get(form.getKey());
+            final short[] grid = entry != null ? form.fromCanonical(entry.grid) : null;
+            if (grid != null && narrows(grid)) {
+                System.arraycopy(grid, 0, puzzle, 0, puzzle.length);
+                recount();
+                passes += entry.passes;
+                reduces += entry.reduces;
+                loners += entry.loners;
+                guesses += entry.guesses;
+                backtracks += entry.backtracks;
+                solutions = entry.solutions;
+                return;
+            }
+        }
+        solveWithoutCache(quiet, guessStrategy);
+        if (form != null)
+            solutionCache.put(form.getKey(), new SolutionCache.Entry(form.toCanonical(puzzle), passes, reduces, loners,
+                    guesses, backtracks, solutions));
+    }
+
+    /**
+     * Returns true if every cell is either known or could still be any value, as in a puzzle that is only its givens.
+     */
+    private boolean hasOnlyGivens() {
+        for (final short cell : puzzle)
+            if (cell != ALL_POSSIBLE && Integer.bitCount(cell) != 1)
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns true if each cell of the grid only has values that are still possible in the puzzle, e.g. a solution
+     * that keeps all the puzzle's known values.
+     */
+    private boolean narrows(final short[] grid) {
+        for (int i = 0; i < puzzle.length; i++)
+            if ((grid[i] & ~puzzle[i]) != 0)
+                return false;
+        return true;
+    }
+
+    private void solveWithoutCache(final boolean quiet, final GuessStrategy guessStrategy) {
+        propagate();
+        if (isSolved()) {
+            listener.solutionFound(this); // solved without guessing
+            return;
+        }
+        if (solver == null)
+            solveByGuessing(quiet, guessStrategy);
+        else if (isOk())
+            solveWithSolver();
+    }
+
+    private void solveWithSolver() {
+        solutions += solver.solve(puzzle, solutionLimit);
+        guesses += solver.getGuesses();
+        backtracks += solver.getBacktracks();
+        recount();
+        clearQueue();
+    }
+
+    /**
+     * Returns the canonical form of the puzzle's known values, which is the same for all puzzles that are the same up
+     * to relabeling values, reordering rows and columns within bands and stacks, reordering bands and stacks, and
+     * transposing.
+     * @return the canonical form, or null if the puzzle has far too few known values to have only one solution
+     */
+    public CanonicalForm getCanonicalForm() {
+        return CanonicalForm.of(puzzle);
+    }
+
+    /**
+     * Solves the puzzle, searching the branches of the first levels of guesses as separate tasks on a fork-join pool.
+     * Unless counting solutions, all tasks stop as soon as any of them finds a solution, and when counting, as soon as
+     * they have found as many as the solution limit, like {@link #solve()}. The statistics are totals over all tasks.
+     * If the puzzle is not solvable, it will be left in an unsolved state.
+     * @param pool - the fork-join pool to search on
+     * @param splitDepth - how many levels of guesses to split into separate tasks
+     * @param countSolutions - if true, keep searching to count solutions up to the solution limit instead of stopping
+     *                       at the first one
+     * @param guessStrategy - where to guess when the puzzle can't be solved any further without guessing
+     */
+    public void solveInParallel(ForkJoinPool pool, int splitDepth, boolean countSolutions,
+                                GuessStrategy guessStrategy) {
+        propagate();
+        if (isSolved() || !isOk())
+            return;
+        final ParallelSearch search = new ParallelSearch(splitDepth, countSolutions, guessStrategy);
+        pool.invoke(search.new GuessTask(new Puzzle(this, split(random)), 0));
+        solutions += search.solutions.get();
+        if (search.solution != null) {
+            System.arraycopy(search.solution, 0, puzzle, 0, puzzle.length);
+            recount();
+            clearQueue();
+        }
+    }
+
+    /**
+     * Constructs a copy of a puzzle's grid and settings, with no statistics, to search a branch of it separately on its
+     * own random number generator, since the branches are searched on different threads.
+     */
+    private Puzzle(final Puzzle other, final RandomGenerator random) {
+        this.random = random;
+        puzzle = other.puzzle.clone();
+        knownCells = other.knownCells;
+        contradiction = other.contradiction;
+        setPropagation(other.propagation);
+        rules = other.rules;
+        listener = other.listener;
+        solutionLimit = other.solutionLimit;
+    }
+
+    /**
+     * Returns a new random number generator for a branch searched on another thread, split off from the provided one
+     * if it can be, or else seeded from it. Either way, the provided one is only used on the calling thread.
+     */
+    private static RandomGenerator split(final RandomGenerator random) {
+        if (random instanceof RandomGenerator.SplittableGenerator)
+            return ((RandomGenerator.SplittableGenerator) random).split();
+        return new Random(random.nextLong());
+    }
+
+    private synchronized void addStatistics(final Puzzle other) {
+        passes += other.passes;
+        reduces += other.reduces;
+        loners += other.loners;
+        for (int r = 0; r < eliminations.length; r++)
+            eliminations[r] += other.eliminations[r];
+        guesses += other.guesses;
+        backtracks += other.backtracks;
+    }
+
+    /**
+     * The state shared by all tasks of a parallel search.
+     */
+    private final class ParallelSearch {
+        private final int splitDepth, limit;
+        private final GuessStrategy guessStrategy;
+        private final AtomicBoolean stopped = new AtomicBoolean();
+        private final AtomicInteger solutions = new AtomicInteger();
+        private volatile short[] solution;
+
+        private ParallelSearch(final int splitDepth, final boolean countSolutions, final GuessStrategy guessStrategy) {
+            this.splitDepth = splitDepth;
+            limit = countSolutions ? solutionLimit : 1;
+            this.guessStrategy = guessStrategy;
+        }
+
+        private void found(final short[] grid) {
+            int count;
+            do {
+                count = solutions.get();
+                if (count >= limit)
+                    return; // found by another task at the same time as the last one
+            } while (!solutions.compareAndSet(count, count + 1));
+            solution = grid.clone(); // when counting, keep the last one found, like solveByGuessing
+            if (count + 1 == limit)
+                stopped.set(true);
+        }
+
+        /**
+         * Guesses at one cell of a propagated, unsolved grid, trying each possible value on a copy of it. Branches
+         * within the split depth are forked as tasks of their own, deeper ones are searched in this task.
+         */
+        private final class GuessTask extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+
+            private final Puzzle node;
+            private final int depth;
+
+            private GuessTask(final Puzzle node, final int depth) {
+                this.node = node;
+                this.depth = depth;
+            }
+
+            @Override
+            protected void compute() {
+                if (depth >= splitDepth) {
+                    node.searchSequentially(ParallelSearch.this, 0);
+                    addStatistics(node);
+                    return;
+                }
+                final short[] grid = node.puzzle;
+                final int i = guessStrategy.selectCell(grid, node.random);
+                final List<GuessTask> forked = new ArrayList<>(9);
+                for (short b = 1; b < 0x200 && !stopped.get(); b <<= 1) {
+                    if ((grid[i] & b) != 0) {
+                        final Puzzle child = new Puzzle(node, split(node.random));
+                        child.setCell(i, b);
+                        child.enqueue(i);
+                        child.guesses++;
+                        child.listener.guessed(child, i, b, depth);
+                        while (child.solvePass()) ;
+                        if (child.isSolved()) {
+                            found(child.puzzle);
+                            child.listener.solutionFound(child);
+                        } else if (!child.isOk()) {
+                            child.backtracks++;
+                            child.listener.backtracked(child, depth);
+                        } else {
+                            final GuessTask task = new GuessTask(child, depth + 1);
+                            task.fork();
+                            forked.add(task);
+                            continue; // the task adds the child's statistics when done
+                        }
+                        addStatistics(child);
+                    }
+                }
+                for (final GuessTask task : forked)
+                    task.join();
+                addStatistics(node);
+            }
+        }
+    }
+
+    /**
+     * Searches all guesses from the current grid, restoring it after each one, until the search is stopped.
+     */
+    private void searchSequentially(final ParallelSearch search, final int depth) {
+        final int i = search.guessStrategy.selectCell(puzzle, random);
+        if (i == -1)
+            return;
+        final short[] gridCopy = stackedGrid(gridStack, depth);
+        System.arraycopy(puzzle, 0, gridCopy, 0, puzzle.length);
+        final int knownCellsCopy = knownCells;
+        final boolean contradictionCopy = contradiction;
+        for (short b = 1; b < 0x200 && !search.stopped.get(); b <<= 1) {
+            if ((gridCopy[i] & b) != 0) {
+                setCell(i, b);
+                enqueue(i);
+                guesses++;
+                listener.guessed(this, i, b, depth);
+                while (solvePass()) ;
+                if (isSolved()) {
+                    search.found(puzzle);
+                    listener.solutionFound(this);
+                } else if (!isOk()) {
+                    backtracks++;
+                    listener.backtracked(this, depth);
+                } else {
+                    searchSequentially(search, depth + 1);
+                }
+                restore(gridCopy, knownCellsCopy, contradictionCopy);
+            }
+        }
+    }
+
+    /**
+     * Returns the solutions of the puzzle, found one at a time as the stream is consumed, so that there can be any
+     * number of them without holding them all, and a short-circuiting operation such as {@link Stream#limit(long)} or
+     * {@link Stream#findAny()} stops the search there. A parallel stream splits the untried guesses of the search
+     * between threads. The search is on a copy of the puzzle, guessing at the cell with the fewest possible values,
+     * so it ignores the solution limit, and leaves the puzzle, its statistics, and its listener untouched, other than
+     * splitting a random number generator off its own for the copy.
+     * @return the solutions, each as 81 cells of 9-bit bitmasks with one bit set
+     */
+    public Stream<short[]> solutions() {
+        return StreamSupport.stream(new SolutionSpliterator(new Puzzle(this, split(random))), false);
+    }
+
+    /**
+     * Finds the solutions of a copy of a puzzle by continuing its search by guessing to each next solution in turn.
+     * Splitting hands off half of the values not yet tried at the shallowest guess that has at least two left, as a
+     * copy of the grid from before that guess, with the guessed cell narrowed down to those values.
+     */
+    private static final class SolutionSpliterator implements Spliterator<short[]> {
+        private final Puzzle puzzle;
+        private boolean started, solvedByPropagation;
+
+        private SolutionSpliterator(final Puzzle puzzle) {
+            this.puzzle = puzzle;
+            puzzle.listener = SolverListener.NONE;
+        }
+
+        private void start() {
+            if (started)
+                return;
+            started = true;
+            puzzle.propagate();
+            if (puzzle.isSolved())
+                solvedByPropagation = true;
+            else if (puzzle.isOk())
+                puzzle.startSearch(GuessStrategy.MRV);
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super short[]> action) {
+            start();
+            if (solvedByPropagation) {
+                solvedByPropagation = false;
+                action.accept(puzzle.puzzle.clone());
+                return true;
+            }
+            final int solutionsBefore = puzzle.solutions;
+            puzzle.continueSearch(true, GuessStrategy.MRV, Long.MAX_VALUE, 0, Long.MAX_VALUE, CancellationToken.NONE,
+                    solutionsBefore + 1);
+            if (puzzle.solutions == solutionsBefore)
+                return false;
+            action.accept(puzzle.lastSolution.clone());
+            return true;
+        }
+
+        @Override
+        public Spliterator<short[]> trySplit() {
+            start();
+            for (int depth = 0; depth <= puzzle.searchDepth; depth++) {
+                final int i = puzzle.guessCells[depth], firstValue = puzzle.firstValues[depth];
+                final short[] gridCopy = puzzle.gridStack[depth];
+                int untried = 0;
+                for (int n = puzzle.triedValues[depth]; n < 9; n++)
+                    untried |= gridCopy[i] & (1 << ((n + firstValue) % 9));
+                if (Integer.bitCount(untried) < 2)
+                    continue;
+                // hand off the values that would be tried last, and take them out of this search's grid to backtrack to
+                short split = 0;
+                for (int n = 8, count = Integer.bitCount(untried) / 2; count > 0; n--) {
+                    final int b = 1 << ((n + firstValue) % 9);
+                    if ((untried & b) != 0) {
+                        split |= b;
+                        count--;
+                    }
+                }
+                gridCopy[i] &= ~split;
+                final Puzzle other = new Puzzle(puzzle, split(puzzle.random));
+                System.arraycopy(gridCopy, 0, other.puzzle, 0, gridCopy.length);
+                other.puzzle[i] = split;
+                other.recount();
+                return new SolutionSpliterator(other);
+            }
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return NONNULL;
+        }
+    }
+
+    private void propagate() {
+        if (propagation == Propagation.QUEUE)
+            enqueueKnown();
         while (solvePass()) ;
-        if (!isSolved())
-            solveByGuessing(quiet, randomGuessLocation);
     }
 
     private boolean solvePass() {
+        listener.passStarted(this);
+        final boolean progress = propagatePass();
+        listener.passEnded(this);
+        return progress;
+    }
+
+    private boolean propagatePass() {
+        if (propagation == Propagation.BITBOARD) {
+            solveBitboard();
+            // the bitboard propagates as far as it can in one go, so only a rule can make more progress
+            return rules.length > 0 && !isSolved() && isOk() && solveByRules();
+        }
+        if (propagation == Propagation.QUEUE)
+            return solveQueued() && !isSolved() && (solveLoner() != 0 || solveByRules());
         if (isSolved() || !isOk())
             return false;
         while (solveExclusionary() != 0) ;
         if (isSolved() || !isOk())
             return false;
         if (solveLoner() == 0)
-            return false;
+            return solveByRules();
         return true;
     }
 
+    /**
+     * Tries the deduction rules in order until one removes a possible value.
+     * @return true if a rule removed a possible value
+     */
+    private boolean solveByRules() {
+        for (final DeductionRule rule : rules) {
+            final int removed = rule.apply(puzzle);
+            if (removed != 0) {
+                eliminations[rule.ordinal()] += removed;
+                recount();
+                if (propagation == Propagation.QUEUE)
+                    enqueueKnown(); // the rule may have left any number of cells known
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Returns true if the puzzle is solved.
      * @return true if the puzzle is solved
      */
     public boolean isSolved() {
-        for (final short cell : puzzle)
-            if (!isPow2(cell))
-                return false;
-        return true;
+        return knownCells == puzzle.length;
     }
 
     /**
@@ -268,80 +1109,147 @@ public class Puzzle {
     public int solveExclusionary() {
         passes++;
         int count = 0;
-        for (int row = 0; row < 9; row++)
-            for (int col = 0; col < 9; col++)
-                count += this.solveExclusionary(row, col);
+        for (int i = 0; i < puzzle.length; i++)
+            count += this.solveExclusionary(i);
         return count;
     }
 
     /**
-     * Solves the puzzle by finding cells that are the only ones that could be a particular value.
+     * Solves the puzzle by finding cells that are the only ones in a unit that could be a particular value, making all
+     * of the ones found in one sweep over the units known at once.
      * @return the number of cells that were changed
      */
     public int solveLoner() {
-        for (int i = 0; i < puzzle.length; i++) {
-            if (!isPow2(puzzle[i])) {
-                int count = this.solveLoner(i / 9, i % 9);
-                if (count > 0)
-                    return count;
+        int count = 0;
+        for (final int[] unit : UNITS)
+            count += solveLoners(unit);
+        return count;
+    }
+
+    /**
+     * Removes the values of queued known cells from their peers, queueing any peer that becomes known in turn.
+     * @return false if a cell was left with no possible values
+     */
+    private boolean solveQueued() {
+        passes++;
+        while (queueHead < queueTail) {
+            final int i = queue[queueHead++];
+            final short cur = puzzle[i], notCur = (short) ~cur;
+            for (final int peer : PEERS[i]) {
+                if ((cur & puzzle[peer]) != 0) {
+                    reduces++;
+                    listener.reduced(this, peer, cur);
+                    removeValue(peer, notCur);
+                    if (contradiction)
+                        return false;
+                    if (isPow2(puzzle[peer]))
+                        queue[queueTail++] = peer;
+                }
             }
         }
-        return 0;
+        return true;
+    }
+
+    private void solveBitboard() {
+        bitboard.load(puzzle);
+        final boolean ok = bitboard.propagate();
+        bitboard.store(puzzle);
+        if (ok) {
+            knownCells = bitboard.getKnownCells();
+            contradiction = false;
+        } else {
+            recount();
+        }
+        passes += bitboard.getPasses();
+        reduces += bitboard.getReduces();
+        loners += bitboard.getLoners();
+    }
+
+    private void enqueueKnown() {
+        clearQueue();
+        for (int i = 0; i < puzzle.length; i++)
+            if (isPow2(puzzle[i]))
+                queue[queueTail++] = i;
+    }
+
+    private void enqueue(final int i) {
+        if (propagation == Propagation.QUEUE)
+            queue[queueTail++] = i;
     }
 
-    private int solveExclusionary(final int row, final int col) {
+    private void clearQueue() {
+        queueHead = queueTail = 0;
+    }
+
+    private int solveExclusionary(final int i) {
         int count = 0;
-        final int i = row * 9 + col;
         if (isPow2(puzzle[i])) {
-            // if known, remove as possibility from others in row, column, and sub-grid
-            for (int n = 0; n < 9; n++) {
-                final short cur = puzzle[i], notCur = (short) ~cur;
-                final int ri = row * 9 + n, ic = n * 9 + col, sg = subGrid(gridAt(row, col), n);
-                if (i != ri && (cur & puzzle[ri]) != 0) {
-                    reduces++;
-                    count++;
-                    puzzle[ri] &= notCur;
-                }
-                if (i != ic && (cur & puzzle[ic]) != 0) {
+            // if known, remove as possibility from its peers in row, column, and sub-grid
+            final short cur = puzzle[i], notCur = (short) ~cur;
+            for (final int peer : PEERS[i]) {
+                if ((cur & puzzle[peer]) != 0) {
                     reduces++;
+                    listener.reduced(this, peer, cur);
                     count++;
-                    puzzle[ic] &= notCur;
-                }
-                if (i != sg && (cur & puzzle[sg]) != 0) {
-                    reduces++;
-                    count++;
-                    puzzle[sg] &= notCur;
+                    removeValue(peer, notCur);
                 }
             }
         }
         return count;
     }
 
-    private int solveLoner(final int row, final int col) {
-        final int i = row * 9 + col;
-        if (!isPow2(puzzle[i])) {
-            // if unknown, check to see if it is the only one that could be a particular value
-            for (short b = 1; b < 0x200; b <<= 1) {
+    private int solveLoners(final int[] unit) {
+        // values that are possible in at least one, and in more than one, of the unit's cells, and that are known
+        int once = 0, twice = 0, known = 0;
+        for (final int i : unit) {
+            final short cell = puzzle[i];
+            twice |= once & cell;
+            once |= cell;
+            if (isPow2(cell))
+                known |= cell;
+        }
+        int count = 0;
+        for (int lonerBits = once & ~twice & ~known; lonerBits != 0; lonerBits &= lonerBits - 1) {
+            final short b = (short) Integer.lowestOneBit(lonerBits);
+            for (final int i : unit) {
                 if ((puzzle[i] & b) != 0) {
-                    int rowCouldBe = 0, colCouldBe = 0, subGridCouldBe = 0;
-                    for (int n = 0; n < 9; n++) {
-                        final int ri = row * 9 + n, ic = n * 9 + col, sgi = subGrid(gridAt(row, col), n);
-                        if (i != ri && (puzzle[ri] & b) != 0)
-                            rowCouldBe++;
-                        if (i != ic && (puzzle[ic] & b) != 0)
-                            colCouldBe++;
-                        if (i != sgi && (puzzle[sgi] & b) != 0)
-                            subGridCouldBe++;
-                    }
-                    if (rowCouldBe == 0 || colCouldBe == 0 || subGridCouldBe == 0) {
-                        loners++;
-                        puzzle[i] = b;
-                        return 1;
-                    }
+                    loners++;
+                    listener.lonerFound(this, i, b);
+                    count++;
+                    puzzle[i] = b;
+                    enqueue(i);
+                    break;
                 }
             }
         }
-        return 0;
+        knownCells += count; // none of the cells were known, or their values would be known in the unit
+        return count;
+    }
+
+    /**
+     * Counts the solutions of the puzzle, stopping as soon as the limit is reached. This is much faster than solving
+     * when all that matters is whether there is a solution (a limit of 1), or only one (a limit of 2). The puzzle is
+     * left with the last solution found, if any.
+     * @param limit the number of solutions at which to stop searching
+     * @return the number of solutions found, at most the limit
+     */
+    public int countSolutions(int limit) {
+        return countSolutions(limit, GuessStrategy.MRV);
+    }
+
+    private int countSolutions(final int limit, final GuessStrategy guessStrategy) {
+        recount(); // the generator changes the grid all at once between counts
+        final int defaultLimit = solutionLimit;
+        solutions = 0;
+        solutionLimit = limit;
+        try {
+            solveWithoutCache(true, guessStrategy);
+            if (solutions == 0 && isSolved())
+                solutions = 1; // solved without guessing
+        } finally {
+            solutionLimit = defaultLimit;
+        }
+        return solutions;
     }
 
     /**
@@ -350,47 +1258,184 @@ public class Puzzle {
      * @param randomGuessLocation - if true, guess at a random location instead of the first unsolved location
      */
     public void solveByGuessing(boolean quiet, boolean randomGuessLocation) {
-        final short[] gridCopy = Arrays.copyOf(puzzle, puzzle.length);
-        final int i = findFirstUnsolved(randomGuessLocation ? random.nextInt(puzzle.length) : 0);
-        if (i == -1)
-            return;
-        short[] lastSolution = null;
-        final int startN = randomGuessLocation ? random.nextInt(9) : 0;
-        for (int n = 0; n < 9; n++) {
-            short b = (short) (1 << ((n + startN) % 9));
-            if ((puzzle[i] & b) != 0) {
+        solveByGuessing(quiet, randomGuessLocation ? GuessStrategy.RANDOM : GuessStrategy.FIRST);
+    }
+
+    /**
+     * Solves the puzzle by guessing at a cell, then backtracking if it fails.
+     * @param quiet - if true, don't print anything
+     * @param guessStrategy - where to guess at each level
+     */
+    public void solveByGuessing(boolean quiet, GuessStrategy guessStrategy) {
+        searchByGuessing(quiet, guessStrategy, Long.MAX_VALUE, 0, Long.MAX_VALUE, CancellationToken.NONE);
+    }
+
+    /**
+     * Solves the puzzle within a budget, stopping as soon as it runs out of guesses or time, or is cancelled, so that a
+     * puzzle with few givens can't hold a thread for long. It guesses and backtracks itself, whatever solver or
+     * solution cache is set, and stops at the solution limit as usual, so with the default of 2 it tells a puzzle with
+     * one solution from one with more. Whichever way it ends, the statistics are those of the search so far.
+     * @param guessStrategy where to guess when the puzzle can't be solved any further without guessing
+     * @param maxGuesses the number of guesses, i.e. nodes of the search tree, at which to stop, which may be zero to
+     *                   only propagate
+     * @param timeout how long to search for before stopping, which is checked before each guess
+     * @param cancellation a token to stop the search from another thread, or {@link CancellationToken#NONE}
+     * @return how the search ended
+     * @throws IllegalArgumentException if the number of guesses is negative, or the timeout isn't positive
+     */
+    public SearchStatus solve(GuessStrategy guessStrategy, long maxGuesses, Duration timeout,
+                              CancellationToken cancellation) {
+        if (maxGuesses < 0 || timeout.isNegative() || timeout.isZero())
+            throw new IllegalArgumentException();
+        final long start = System.nanoTime();
+        final long timeoutNanos = timeout.compareTo(MAX_TIMEOUT) < 0 ? timeout.toNanos() : Long.MAX_VALUE;
+        listener.solveStarted(this);
+        final int solutionsBefore = solutions;
+        SearchStatus status = SearchStatus.UNSOLVABLE;
+        propagate();
+        if (isSolved()) {
+            solutions++; // solved without guessing
+            listener.solutionFound(this);
+        } else if (isOk()) {
+            status = searchByGuessing(true, guessStrategy, maxGuesses, start, timeoutNanos, cancellation);
+        }
+        listener.solveEnded(this);
+        if (status != SearchStatus.UNSOLVABLE)
+            return status;
+        final int found = solutions - solutionsBefore;
+        return found == 0 ? SearchStatus.UNSOLVABLE : found == 1 ? SearchStatus.SOLVED : SearchStatus.MULTIPLE;
+    }
+
+    /**
+     * Searches by guessing at a cell, then backtracking if it fails, on the explicit stack of guesses rather than the
+     * call stack, so that it can stop before any guess. It stops at the solution limit, at the end of the search tree,
+     * or when out of guesses or time, or cancelled, and leaves the puzzle with the last solution found, if any, or else
+     * as it was before guessing.
+     * @return why the search stopped, which is UNSOLVABLE if it finished, however many solutions it found
+     */
+    private SearchStatus searchByGuessing(final boolean quiet, final GuessStrategy guessStrategy, final long maxGuesses,
+                                          final long start, final long timeoutNanos,
+                                          final CancellationToken cancellation) {
+        final int solutionsBefore = solutions;
+        startSearch(guessStrategy);
+        final SearchStatus status = continueSearch(quiet, guessStrategy, maxGuesses, start, timeoutNanos, cancellation,
+                solutionLimit);
+        if (searchDepth > 0)
+            restore(gridStack[0], knownCellsCopies[0], contradictionCopies[0]); // stopped part way down
+        if (solutions > solutionsBefore) {
+            System.arraycopy(lastSolution, 0, puzzle, 0, puzzle.length);
+            recount();
+            clearQueue();
+        }
+        return status;
+    }
+
+    /**
+     * Starts a search by guessing, making the first guess the next step of {@link #continueSearch}.
+     */
+    private void startSearch(final GuessStrategy guessStrategy) {
+        if (guessCells == null) {
+            guessCells = new int[9 * 9];
+            firstValues = new int[9 * 9];
+            triedValues = new int[9 * 9];
+            knownCellsCopies = new int[9 * 9];
+            contradictionCopies = new boolean[9 * 9];
+        }
+        searchDepth = pushGuess(guessStrategy, 0) ? 0 : -1;
+    }
+
+    /**
+     * Continues a search by guessing from where it stopped, until the number of solutions reaches a limit, the search
+     * tree is exhausted, or it runs out of guesses or time, or is cancelled. After each solution, the grid is restored
+     * to before the guess that led to it, so the search can go on from there.
+     * @return why the search stopped, which is UNSOLVABLE if it reached the limit or finished
+     */
+    private SearchStatus continueSearch(final boolean quiet, final GuessStrategy guessStrategy, final long maxGuesses,
+                                        final long start, final long timeoutNanos,
+                                        final CancellationToken cancellation, final int limit) {
+        long guessed = 0;
+        while (searchDepth >= 0 && solutions < limit) {
+            final int depth = searchDepth;
+            final int i = guessCells[depth];
+            final short[] gridCopy = gridStack[depth];
+            int n = triedValues[depth];
+            while (n < 9 && (gridCopy[i] & (1 << ((n + firstValues[depth]) % 9))) == 0)
+                n++;
+            if (n == 9) {
+                // every value has been tried at this depth, so backtrack to the guess before
+                if (--searchDepth >= 0)
+                    restore(gridStack[searchDepth], knownCellsCopies[searchDepth], contradictionCopies[searchDepth]);
+                continue;
+            }
+            triedValues[depth] = n + 1;
+            if (guessed >= maxGuesses ||
+                    timeoutNanos != Long.MAX_VALUE && System.nanoTime() - start >= timeoutNanos)
+                return SearchStatus.BUDGET_EXCEEDED;
+            if (cancellation.isCancelled())
+                return SearchStatus.CANCELLED;
+            guessed++;
+            final short b = (short) (1 << ((n + firstValues[depth]) % 9));
+            if (!quiet) {
+                print();
+                System.out.print("Guessing " + (Integer.numberOfTrailingZeros(b) + 1) + " at row " + ((i / 9) + 1) +
+                        ", col " + ((i % 9) + 1) + "... ");
+            }
+            setCell(i, b);
+            enqueue(i);
+            guesses++;
+            listener.guessed(this, i, b, depth);
+            while (solvePass()) ;
+            if (isSolved()) {
+                solutions++;
+                listener.solutionFound(this);
+                if (!quiet)
+                    System.out.println("solved");
+                if (lastSolution == null)
+                    lastSolution = new short[9 * 9];
+                System.arraycopy(puzzle, 0, lastSolution, 0, puzzle.length);
+            } else if (!isOk()) {
                 if (!quiet) {
-                    print();
-                    System.out.print("Guessing " + (log2(b) + 1) + " at row " + ((i / 9) + 1) + ", col " + ((i % 9) + 1) + "... ");
-                }
-                puzzle[i] = b;
-                guesses++;
-                while (solvePass()) ;
-                if (isSolved()) {
-                    solutions++;
-                    if (!quiet)
-                        System.out.println("solved");
-                    lastSolution = Arrays.copyOf(puzzle, puzzle.length);
-                    // backtrack to see if other solutions exist
-                    System.arraycopy(gridCopy, 0, puzzle, 0, puzzle.length);
-                    continue;
+                    System.out.println("failed");
+                    this.print();
+                    System.out.println("backtracking");
                 }
-                if (!isOk()) {
-                    // backtrack
-                    if (!quiet) {
-                        System.out.println("failed");
-                        this.print();
-                        System.out.println("backtracking");
-                    }
-                    backtracks++;
-                    System.arraycopy(gridCopy, 0, puzzle, 0, puzzle.length);
-                    continue;
-                }
-                solveByGuessing(quiet, randomGuessLocation);
+                backtracks++;
+                listener.backtracked(this, depth);
+            } else if (pushGuess(guessStrategy, depth + 1)) {
+                searchDepth++;
+                continue;
             }
+            // backtrack to see if other solutions exist
+            restore(gridCopy, knownCellsCopies[depth], contradictionCopies[depth]);
         }
-        if (lastSolution != null)
-            System.arraycopy(lastSolution, 0, puzzle, 0, puzzle.length);
+        return SearchStatus.UNSOLVABLE;
+    }
+
+    /**
+     * Chooses the cell to guess at at a depth, and saves the grid to backtrack to.
+     * @return false if there is no cell to guess at
+     */
+    private boolean pushGuess(final GuessStrategy guessStrategy, final int depth) {
+        final int i = guessStrategy.selectCell(puzzle, random);
+        if (i == -1)
+            return false;
+        guessCells[depth] = i;
+        System.arraycopy(puzzle, 0, stackedGrid(gridStack, depth), 0, puzzle.length);
+        knownCellsCopies[depth] = knownCells;
+        contradictionCopies[depth] = contradiction;
+        firstValues[depth] = guessStrategy.selectFirstValue(random);
+        triedValues[depth] = 0;
+        return true;
+    }
+
+    /**
+     * Returns the grid for the given guessing depth, allocating it the first time that depth is reached. Every guess
+     * solves at least one more cell, so there can be no more levels than there are cells.
+     */
+    private static short[] stackedGrid(final short[][] stack, final int depth) {
+        if (stack[depth] == null)
+            stack[depth] = new short[9 * 9];
+        return stack[depth];
     }
 
     /**
@@ -398,17 +1443,62 @@ public class Puzzle {
      * @return true if the puzzle is in a valid state
      */
     public boolean isOk() {
-        for (final short cell : puzzle)
-            if (cell == 0)
-                return false;
-        return true;
+        return !contradiction;
     }
 
-    private int findFirstUnsolved(final int startingFrom) {
-        for (int i = 0; i < puzzle.length; i++)
-            if (!isPow2(puzzle[(startingFrom + i) % puzzle.length]))
-                return i;
-        return -1;
+    /**
+     * Sets a cell, keeping the count of known cells and the contradiction flag up to date.
+     */
+    private void setCell(final int i, final short cell) {
+        if (isPow2(puzzle[i]))
+            knownCells--;
+        if (isPow2(cell))
+            knownCells++;
+        else if (cell == 0)
+            contradiction = true;
+        puzzle[i] = cell;
+    }
+
+    /**
+     * Removes a value from a cell that has it as a possible value, keeping the count of known cells and the
+     * contradiction flag up to date.
+     * @param notValue the complement of the value's bitmask
+     */
+    private void removeValue(final int i, final short notValue) {
+        final short cell = (short) (puzzle[i] & notValue);
+        puzzle[i] = cell;
+        if ((cell & (cell - 1)) != 0)
+            return; // still more than one possible value, by far the most common case
+        if (cell == 0) {
+            knownCells--; // the value was the only one left
+            contradiction = true;
+        } else {
+            knownCells++;
+        }
+    }
+
+    /**
+     * Restores the grid, the count of known cells and the contradiction flag to copies taken before guessing.
+     */
+    private void restore(final short[] gridCopy, final int knownCellsCopy, final boolean contradictionCopy) {
+        System.arraycopy(gridCopy, 0, puzzle, 0, puzzle.length);
+        knownCells = knownCellsCopy;
+        contradiction = contradictionCopy;
+        clearQueue();
+    }
+
+    /**
+     * Counts the known cells, and checks for cells with no possible values left, from scratch.
+     */
+    private void recount() {
+        knownCells = 0;
+        contradiction = false;
+        for (final short cell : puzzle) {
+            if (isPow2(cell))
+                knownCells++;
+            else if (cell == 0)
+                contradiction = true;
+        }
     }
 
     /**
@@ -419,59 +1509,146 @@ public class Puzzle {
                 (passes > 0 ? " Passes: " + passes : "") +
                 (reduces > 0 ? " Reduces: " + reduces : "") +
                 (loners > 0 ? " Loners: " + loners : "") +
+                getEliminationStatistics() +
                 (guesses > 0 ? " Guesses: " + guesses : "") +
                 (backtracks > 0 ? " Backtracks: " + backtracks : "") +
                 (solutions > 1 ? " Solutions: " + solutions : "") +
                 (rounds > 0 ? " Rounds: " + rounds : "");
     }
 
+    private String getEliminationStatistics() {
+        final StringBuilder sb = new StringBuilder();
+        for (final DeductionRule rule : DeductionRule.values())
+            if (eliminations[rule.ordinal()] > 0)
+                sb.append(' ').append(rule.getLabel()).append(": ").append(eliminations[rule.ordinal()]);
+        return sb.toString();
+    }
+
     /**
      * Returns a string representation of the puzzle.
      */
     @Override
     public String toString() {
-        final StringBuilder sb = new StringBuilder(9 * (9 + 3) - 1);
-        int i = 0;
-        for (final short cell : puzzle) {
-            if (i != 0 && i % 9 == 0)
-                sb.append('\n');
-            else if (i % 3 == 0)
-                sb.append(' ');
-            sb.append(isPow2(cell) ? log2(cell) + 1 : '.');
-            i++;
-        }
-        return sb.toString();
+        return PuzzleRenderer.PLAIN.render(this);
+    }
+
+    /**
+     * Returns the puzzle's cells, as 9-bit bitmasks of possible values, without copying them.
+     */
+    short[] getGrid() {
+        return puzzle;
     }
 
+    /**
+     * The size of the binary form of a puzzle's known values, i.e. 4 bits per cell.
+     */
+    public static final int GIVENS_BYTES = (9 * 9 + 1) / 2;
 
-    private static final String ANSI_RESET = "\u001B[0m";
-    private static final String ANSI_RED = "\u001B[31m";
-    private static final String ANSI_BG_DARK_GRAY = "\u001B[100m";
-    private static final String ANSI_BG_YELLOW = "\u001B[103m";
+    /**
+     * The size of the binary form of all a puzzle's possible values, i.e. 9 bits per cell.
+     */
+    public static final int CANDIDATES_BYTES = (9 * 9 * 9 + 7) / 8;
 
     /**
-     * Prints the puzzle to standard out.
+     * Returns the known values of the puzzle in binary, 4 bits per cell, two cells to a byte with the first cell in the
+     * low bits. A known cell is its value from 1 to 9, and an unknown cell is 0.
+     * @return the known values of the puzzle in {@link #GIVENS_BYTES} bytes
      */
-    public void print() {
-        for (int i = 0, row = 0; row < 9; row++) {
-            for (int col = 0; col < 9; col++) {
-                // checkerboard grid squares
-                int gridNum = gridAt(row, col);
-                if (gridNum % 2 == 0)
-                    System.out.print(ANSI_BG_DARK_GRAY);
-                else
-                    System.out.print(ANSI_RESET);
+    public byte[] toBytes() {
+        return toBytes(false);
+    }
 
-                final short cell = puzzle[i++];
-                if (cell == 0)
-                    System.out.print(ANSI_RED + ANSI_BG_YELLOW + '!' + ANSI_RESET); // error
-                else if (isPow2(cell))
-                    System.out.print(log2(cell) + 1); // known
-                else
-                    System.out.print('.'); // unknown
+    /**
+     * Returns the puzzle in binary, either only its known values as in {@link #toBytes()}, or all its possible values,
+     * as the 9-bit bitmask of each cell packed one after the other, starting from the low bits of the first byte.
+     * @param candidates whether to include all possible values, rather than only the known ones
+     * @return the puzzle in {@link #GIVENS_BYTES} or {@link #CANDIDATES_BYTES} bytes
+     */
+    public byte[] toBytes(boolean candidates) {
+        final ByteBuffer buffer = ByteBuffer.allocate(candidates ? CANDIDATES_BYTES : GIVENS_BYTES);
+        writeTo(buffer, candidates);
+        return buffer.array();
+    }
+
+    /**
+     * Writes the puzzle in binary, as returned by {@link #toBytes(boolean)}, at the buffer's position, and advances it.
+     * @param buffer the buffer to write to
+     * @param candidates whether to include all possible values, rather than only the known ones
+     */
+    public void writeTo(ByteBuffer buffer, boolean candidates) {
+        if (candidates) {
+            int bits = 0, bitCount = 0;
+            for (final short cell : puzzle) {
+                bits |= cell << bitCount;
+                for (bitCount += 9; bitCount >= 8; bitCount -= 8, bits >>>= 8)
+                    buffer.put((byte) bits);
+            }
+            buffer.put((byte) bits);
+        } else {
+            for (int i = 0; i < puzzle.length; i += 2)
+                buffer.put((byte) (givenAt(i) | (i + 1 < puzzle.length ? givenAt(i + 1) << 4 : 0)));
+        }
+    }
+
+    private int givenAt(final int i) {
+        return isPow2(puzzle[i]) ? 1 + Integer.numberOfTrailingZeros(puzzle[i]) : 0;
+    }
+
+    /**
+     * Constructs a puzzle from its binary form, as returned by {@link #toBytes(boolean)}, telling which form it is by
+     * its length. A zero-seeded random number generator is used for solving when guessing is required.
+     * @param bytes the puzzle in {@link #GIVENS_BYTES} or {@link #CANDIDATES_BYTES} bytes
+     * @return the puzzle
+     */
+    public static Puzzle fromBytes(byte[] bytes) {
+        if (bytes.length != GIVENS_BYTES && bytes.length != CANDIDATES_BYTES)
+            throw new IllegalArgumentException();
+        return readFrom(ByteBuffer.wrap(bytes), bytes.length == CANDIDATES_BYTES);
+    }
+
+    /**
+     * Reads a puzzle in binary, as returned by {@link #toBytes(boolean)}, from the buffer's position, and advances it.
+     * A zero-seeded random number generator is used for solving when guessing is required.
+     * @param buffer the buffer to read from
+     * @param candidates whether the puzzle includes all possible values, rather than only the known ones
+     * @return the puzzle
+     */
+    public static Puzzle readFrom(ByteBuffer buffer, boolean candidates) {
+        final Puzzle p = new Puzzle(new Random(0), (short) 0);
+        final short[] grid = p.puzzle;
+        if (candidates) {
+            int bits = 0, bitCount = 0;
+            for (int i = 0; i < grid.length; i++) {
+                for (; bitCount < 9; bitCount += 8)
+                    bits |= (buffer.get() & 0xff) << bitCount;
+                grid[i] = (short) (bits & ALL_POSSIBLE);
+                bits >>>= 9;
+                bitCount -= 9;
+            }
+        } else {
+            for (int i = 0; i < grid.length; i += 2) {
+                final int b = buffer.get();
+                grid[i] = givenCell(b & 0xf);
+                if (i + 1 < grid.length)
+                    grid[i + 1] = givenCell((b >> 4) & 0xf);
             }
-            System.out.println(ANSI_RESET);
         }
+        p.recount();
+        return p;
+    }
+
+    private static short givenCell(final int value) {
+        if (value > 9)
+            throw new IllegalArgumentException();
+        return value == 0 ? ALL_POSSIBLE : (short) (1 << (value - 1));
+    }
+
+
+    /**
+     * Prints the puzzle to standard out.
+     */
+    public void print() {
+        System.out.append(PuzzleRenderer.ANSI.render(this, PuzzleRenderer.scratch()));
     }
 
     private static int gridAt(final int row, final int col) {
@@ -484,12 +1661,6 @@ public class Puzzle {
         return (gridRow * 3 + subGridRow) * 9 + gridCol * 3 + subGridCol;
     }
 
-    private static final double LOG2 = Math.log(2);
-
-    private static int log2(final short n) {
-        return (int) (Math.log(n) / LOG2);
-    }
-
     private static boolean isPow2(final short n) {
         return n != 0 && (n & (n - 1)) == 0;
     }
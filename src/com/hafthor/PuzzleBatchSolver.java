@@ -0,0 +1,122 @@
+package com.hafthor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Solves many puzzles at once by spreading them across an executor, e.g. a {@link ForkJoinPool}, or on Java 21 and
+ * later a virtual-thread-per-task executor. Each puzzle is solved independently on its own {@link Puzzle}, and the
+ * results come back in input order along with totals of their statistics, either all at once or handed over one at a
+ * time for input too large to keep.
+ */
+public class PuzzleBatchSolver {
+    private final Executor executor;
+    private final int maxInFlight;
+    private final GuessStrategy guessStrategy;
+
+    /**
+     * Constructs a batch solver that uses the common fork-join pool.
+     */
+    public PuzzleBatchSolver() {
+        this(ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism() * 4, GuessStrategy.FIRST);
+    }
+
+    /**
+     * Constructs a batch solver that uses the provided executor.
+     * @param executor the executor to solve puzzles on
+     * @param maxInFlight how many puzzles may be queued or being solved at once, so that the input is read no further
+     *                    ahead than that of the puzzle to be handed over next; only
+     *                    {@link #solveAll(Stream, Consumer)} also keeps the puzzles that were handed over out of memory
+     * @param guessStrategy where to guess when a puzzle can't be solved any further without guessing
+     */
+    public PuzzleBatchSolver(final Executor executor, final int maxInFlight, final GuessStrategy guessStrategy) {
+        if (maxInFlight < 1)
+            throw new IllegalArgumentException();
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.guessStrategy = guessStrategy;
+    }
+
+    /**
+     * Solves all the puzzles, each in the format accepted by {@link Puzzle#Puzzle(String)}, keeping all of them.
+     * @param puzzles the puzzles to solve
+     * @return the solved (or partially solved, if unsolvable) puzzles in input order, with their total statistics
+     */
+    public Result solveAll(final Stream<String> puzzles) {
+        final List<Puzzle> solved = new ArrayList<>();
+        final SolveTotals totals = solveAll(puzzles, solved::add);
+        return new Result(solved, totals);
+    }
+
+    /**
+     * Solves all the puzzles, each in the format accepted by {@link Puzzle#Puzzle(String)}, handing each one over as
+     * soon as it and all those before it are done, so that no more than {@code maxInFlight} puzzles are held at once.
+     * @param puzzles the puzzles to solve
+     * @param consumer what to hand the solved (or partially solved, if unsolvable) puzzles to, in input order, on the
+     *                 calling thread
+     * @return the total statistics
+     */
+    public SolveTotals solveAll(final Stream<String> puzzles, final Consumer<? super Puzzle> consumer) {
+        final SolveTotals totals = new SolveTotals();
+        final ArrayDeque<CompletableFuture<Puzzle>> inFlight = new ArrayDeque<>(maxInFlight);
+        final Iterator<String> it = puzzles.iterator();
+        while (it.hasNext()) {
+            final String s = it.next();
+            if (inFlight.size() == maxInFlight)
+                handOver(Futures.join(inFlight.removeFirst()), totals, consumer);
+            inFlight.addLast(CompletableFuture.supplyAsync(() -> solve(s), executor));
+        }
+        while (!inFlight.isEmpty())
+            handOver(Futures.join(inFlight.removeFirst()), totals, consumer);
+        return totals;
+    }
+
+    private static void handOver(final Puzzle puzzle, final SolveTotals totals,
+                                 final Consumer<? super Puzzle> consumer) {
+        totals.add(puzzle);
+        consumer.accept(puzzle);
+    }
+
+    private Puzzle solve(final String s) {
+        final Puzzle puzzle = new Puzzle(s);
+        puzzle.solve(true, guessStrategy);
+        return puzzle;
+    }
+
+    /**
+     * The puzzles solved by a batch, in input order, and the totals of their statistics.
+     */
+    public static class Result {
+        private final List<Puzzle> puzzles;
+        private final SolveTotals totals;
+
+        private Result(final List<Puzzle> puzzles, final SolveTotals totals) {
+            this.puzzles = puzzles;
+            this.totals = totals;
+        }
+
+        /**
+         * Returns the puzzles, in input order.
+         * @return the puzzles, in input order
+         */
+        public List<Puzzle> getPuzzles() {
+            return Collections.unmodifiableList(puzzles);
+        }
+
+        /**
+         * Returns the totals of the statistics of the puzzles.
+         * @return the totals of the statistics of the puzzles
+         */
+        public SolveTotals getTotals() {
+            return totals;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.hafthor;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.function.Consumer;
+
+/**
+ * Reads and writes many puzzles at once in the binary form of {@link Puzzle#toBytes(boolean)}, e.g. to and from a
+ * {@link java.nio.channels.FileChannel}. Puzzles are simply stored one after the other, each in the same number of
+ * bytes, so there is no header, and the n-th puzzle of a file can be found by its offset alone.
+ */
+public final class PuzzleCodec {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private PuzzleCodec() {
+    }
+
+    /**
+     * Writes puzzles to a channel.
+     * @param channel the channel to write to
+     * @param puzzles the puzzles to write
+     * @param candidates whether to include all possible values, rather than only the known ones
+     * @return the number of puzzles written
+     * @throws IOException if the channel can't be written
+     */
+    public static long write(final WritableByteChannel channel, final Iterable<Puzzle> puzzles,
+                             final boolean candidates) throws IOException {
+        final int size = candidates ? Puzzle.CANDIDATES_BYTES : Puzzle.GIVENS_BYTES;
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE - BUFFER_SIZE % size);
+        long count = 0;
+        for (final Puzzle puzzle : puzzles) {
+            if (!buffer.hasRemaining())
+                flush(channel, buffer);
+            puzzle.writeTo(buffer, candidates);
+            count++;
+        }
+        flush(channel, buffer);
+        return count;
+    }
+
+    /**
+     * Reads puzzles from a channel until the end of it, handing each one to a consumer as it is read.
+     * @param channel the channel to read from
+     * @param candidates whether the puzzles include all possible values, rather than only the known ones
+     * @param consumer what to do with each puzzle
+     * @return the number of puzzles read
+     * @throws IOException if the channel can't be read, or ends part way through a puzzle
+     */
+    public static long read(final ReadableByteChannel channel, final boolean candidates,
+                            final Consumer<Puzzle> consumer) throws IOException {
+        final int size = candidates ? Puzzle.CANDIDATES_BYTES : Puzzle.GIVENS_BYTES;
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE - BUFFER_SIZE % size);
+        long count = 0;
+        boolean eof = false;
+        while (!eof) {
+            eof = channel.read(buffer) == -1;
+            buffer.flip();
+            for (; buffer.remaining() >= size; count++)
+                consumer.accept(Puzzle.readFrom(buffer, candidates));
+            if (eof && buffer.hasRemaining())
+                throw new EOFException();
+            buffer.compact(); // keep the start of a puzzle cut off at the end of the buffer for the next read
+        }
+        return count;
+    }
+
+    private static void flush(final WritableByteChannel channel, final ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,189 @@
+package com.hafthor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Solves a file of puzzles, one per line, into a file of solutions, one per line in the same order, without holding
+ * more than a bounded number of puzzles in memory. Puzzles are handed to the executor in batches, since most take
+ * less time to solve than handing them over one at a time would. Each input line is parsed straight from the bytes
+ * read, so it can be in any format accepted by {@link Puzzle#Puzzle(byte[], int, int)}, typically 81 digits with a
+ * zero or a period for each unknown value. Blank lines are skipped.
+ * <p>
+ * Each output line is the solution as 81 digits, or if the puzzle couldn't be solved, as far as it got with a period
+ * for each unknown value, followed by the passes, reduces, loners, guesses and backtracks it took.
+ */
+public class PuzzleFileSolver {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_LINE_LENGTH = 1 << 10;
+    private static final int BATCH_SIZE = 256;
+
+    private final Executor executor;
+    private final int maxInFlight;
+    private final GuessStrategy guessStrategy;
+
+    /**
+     * Constructs a file solver that uses the common fork-join pool.
+     */
+    public PuzzleFileSolver() {
+        this(ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism() * 4, GuessStrategy.FIRST);
+    }
+
+    /**
+     * Constructs a file solver that uses the provided executor.
+     * @param executor the executor to solve puzzles on
+     * @param maxInFlight how many batches of puzzles may be queued or being solved at once, while the file is read and
+     *                    written
+     * @param guessStrategy where to guess when a puzzle can't be solved any further without guessing
+     */
+    public PuzzleFileSolver(final Executor executor, final int maxInFlight, final GuessStrategy guessStrategy) {
+        if (maxInFlight < 1)
+            throw new IllegalArgumentException();
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.guessStrategy = guessStrategy;
+    }
+
+    /**
+     * Solves all the puzzles in the input file, writing their solutions to the output file.
+     * @param input the file of puzzles, one per line
+     * @param output the file to write the solutions to, which is replaced if it exists
+     * @return the total statistics
+     * @throws IOException if a file can't be read or written
+     * @throws IllegalArgumentException if a line isn't a puzzle
+     */
+    public SolveTotals solve(final Path input, final Path output) throws IOException {
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            final Writer writer = new Writer(out);
+            final Pipeline pipeline = new Pipeline(writer);
+            final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            final byte[] bytes = buffer.array();
+            boolean eof = false;
+            while (!eof) {
+                eof = in.read(buffer) == -1;
+                int lineStart = 0;
+                for (int p = 0; p < buffer.position(); p++) {
+                    if (bytes[p] == '\n') {
+                        pipeline.add(bytes, lineStart, p);
+                        lineStart = p + 1;
+                    }
+                }
+                if (eof && lineStart < buffer.position()) {
+                    pipeline.add(bytes, lineStart, buffer.position()); // no newline at the end
+                    lineStart = buffer.position();
+                }
+                if (buffer.position() - lineStart > MAX_LINE_LENGTH)
+                    throw new IllegalArgumentException("line too long");
+                // keep the start of a line cut off at the end of the buffer for the next read
+                buffer.limit(buffer.position()).position(lineStart);
+                buffer.compact();
+            }
+            pipeline.finish();
+            writer.flush();
+            return writer.totals;
+        }
+    }
+
+    /**
+     * Batches of puzzles being solved, in input order, that are written out as they are done.
+     */
+    private final class Pipeline {
+        private final Writer writer;
+        private final ArrayDeque<CompletableFuture<Puzzle[]>> inFlight = new ArrayDeque<>(maxInFlight);
+        private Puzzle[] batch = new Puzzle[BATCH_SIZE];
+        private int batchSize;
+
+        private Pipeline(final Writer writer) {
+            this.writer = writer;
+        }
+
+        private void add(final byte[] bytes, final int lineStart, final int lineEnd) throws IOException {
+            if (Puzzle.isBlank(bytes, lineStart, lineEnd))
+                return;
+            batch[batchSize++] = new Puzzle(bytes, lineStart, lineEnd - lineStart);
+            if (batchSize == BATCH_SIZE)
+                submit();
+        }
+
+        private void submit() throws IOException {
+            if (inFlight.size() == maxInFlight)
+                write(Futures.join(inFlight.removeFirst()));
+            final Puzzle[] puzzles = batch;
+            final int count = batchSize;
+            inFlight.addLast(CompletableFuture.supplyAsync(() -> {
+                for (int i = 0; i < count; i++)
+                    puzzles[i].solve(true, guessStrategy);
+                return puzzles;
+            }, executor));
+            batch = new Puzzle[BATCH_SIZE];
+            batchSize = 0;
+        }
+
+        private void finish() throws IOException {
+            if (batchSize > 0)
+                submit();
+            while (!inFlight.isEmpty())
+                write(Futures.join(inFlight.removeFirst()));
+        }
+
+        private void write(final Puzzle[] puzzles) throws IOException {
+            for (int i = 0; i < puzzles.length && puzzles[i] != null; i++)
+                writer.write(puzzles[i]);
+        }
+    }
+
+    /**
+     * Writes solutions as lines of ASCII to a channel through a buffer, without creating any strings.
+     */
+    private static final class Writer {
+        private final FileChannel out;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final SolveTotals totals = new SolveTotals();
+
+        private Writer(final FileChannel out) {
+            this.out = out;
+        }
+
+        private void write(final Puzzle puzzle) throws IOException {
+            if (buffer.remaining() < MAX_LINE_LENGTH)
+                flush();
+            PuzzleRenderer.COMPACT.render(puzzle, buffer);
+            final byte[] bytes = buffer.array();
+            int p = buffer.position();
+            p = writeNumber(bytes, p, puzzle.getPasses());
+            p = writeNumber(bytes, p, puzzle.getReduces());
+            p = writeNumber(bytes, p, puzzle.getLoners());
+            p = writeNumber(bytes, p, puzzle.getGuesses());
+            p = writeNumber(bytes, p, puzzle.getBacktracks());
+            bytes[p++] = '\n';
+            buffer.position(p);
+            totals.add(puzzle);
+        }
+
+        private static int writeNumber(final byte[] bytes, int p, int n) {
+            bytes[p++] = ' ';
+            int digits = 1;
+            for (int m = n; m >= 10; m /= 10)
+                digits++;
+            for (int d = digits - 1; d >= 0; d--, n /= 10)
+                bytes[p + d] = (byte) ('0' + n % 10);
+            return p + digits;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                out.write(buffer);
+            buffer.clear();
+        }
+    }
+}
\ No newline at end of file
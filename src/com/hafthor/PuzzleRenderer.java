@@ -0,0 +1,142 @@
+package com.hafthor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Renders a puzzle's whole grid at once into a {@link StringBuilder}, an {@link Appendable} or a {@link ByteBuffer},
+ * so that printing many grids takes one write per grid rather than several per cell. Renderers hold no state, so they
+ * can be used by any number of threads at once.
+ */
+public enum PuzzleRenderer {
+    /**
+     * Nine lines of digits, with a period for each unknown cell, and a space before each group of three. This is the
+     * form of {@link Puzzle#toString()}.
+     */
+    PLAIN(9 * (9 + 3)) {
+        @Override
+        void render(final short[] grid, final StringBuilder sb) {
+            for (int i = 0; i < 9 * 9; i++) {
+                if (i != 0 && i % 9 == 0)
+                    sb.append('\n');
+                else if (i % 3 == 0)
+                    sb.append(' ');
+                sb.append(digit(grid[i]));
+            }
+        }
+    },
+
+    /**
+     * Nine lines for a terminal, with the boxes shaded like a checkerboard and a highlighted exclamation mark for each
+     * cell with no possible values left. This is the form of {@link Puzzle#print()}.
+     */
+    ANSI(9 * 9 * 24) {
+        @Override
+        void render(final short[] grid, final StringBuilder sb) {
+            final String lineSeparator = System.lineSeparator();
+            for (int i = 0, row = 0; row < 9; row++) {
+                for (int col = 0; col < 9; col++) {
+                    // checkerboard grid squares
+                    sb.append(((row / 3) * 3 + (col / 3)) % 2 == 0 ? ANSI_BG_DARK_GRAY : ANSI_RESET);
+                    final short cell = grid[i++];
+                    if (cell == 0)
+                        sb.append(ANSI_RED).append(ANSI_BG_YELLOW).append('!').append(ANSI_RESET); // error
+                    else
+                        sb.append(digit(cell));
+                }
+                sb.append(ANSI_RESET).append(lineSeparator);
+            }
+        }
+    },
+
+    /**
+     * 81 characters on one line, a digit for each known cell and a period for each unknown one, which is a form
+     * accepted by {@link Puzzle#Puzzle(String)}.
+     */
+    COMPACT(9 * 9) {
+        @Override
+        void render(final short[] grid, final StringBuilder sb) {
+            for (final short cell : grid)
+                sb.append(digit(cell));
+        }
+
+        @Override
+        public void render(final Puzzle puzzle, final ByteBuffer buffer) {
+            for (final short cell : puzzle.getGrid())
+                buffer.put((byte) digit(cell));
+        }
+    };
+
+    private static final String ANSI_RESET = "\u001B[0m";
+    private static final String ANSI_RED = "\u001B[31m";
+    private static final String ANSI_BG_DARK_GRAY = "\u001B[100m";
+    private static final String ANSI_BG_YELLOW = "\u001B[103m";
+
+    private static final ThreadLocal<StringBuilder> SCRATCH = ThreadLocal.withInitial(() -> new StringBuilder(
+            ANSI.capacity));
+
+    private final int capacity;
+
+    PuzzleRenderer(final int capacity) {
+        this.capacity = capacity;
+    }
+
+    abstract void render(short[] grid, StringBuilder sb);
+
+    /**
+     * Renders a puzzle into a new string.
+     * @param puzzle the puzzle to render
+     * @return the rendered puzzle
+     */
+    public String render(final Puzzle puzzle) {
+        return render(puzzle, new StringBuilder(capacity)).toString();
+    }
+
+    /**
+     * Renders a puzzle onto the end of a string builder, which can be reused for many puzzles.
+     * @param puzzle the puzzle to render
+     * @param sb the string builder to append to
+     * @return the string builder
+     */
+    public StringBuilder render(final Puzzle puzzle, final StringBuilder sb) {
+        render(puzzle.getGrid(), sb);
+        return sb;
+    }
+
+    /**
+     * Renders a puzzle to an appendable, e.g. a {@link java.io.Writer} or a {@link java.io.PrintStream}, in a single
+     * append.
+     * @param puzzle the puzzle to render
+     * @param out the appendable to append to
+     * @throws IOException if the appendable can't be appended to
+     */
+    public void render(final Puzzle puzzle, final Appendable out) throws IOException {
+        out.append(render(puzzle, scratch()));
+    }
+
+    /**
+     * Renders a puzzle into a byte buffer as ASCII, starting at its position and leaving its position after the last
+     * byte written.
+     * @param puzzle the puzzle to render
+     * @param buffer the byte buffer to write to
+     * @throws java.nio.BufferOverflowException if the buffer doesn't have room for the whole puzzle
+     */
+    public void render(final Puzzle puzzle, final ByteBuffer buffer) {
+        final StringBuilder sb = render(puzzle, scratch());
+        for (int i = 0; i < sb.length(); i++)
+            buffer.put((byte) sb.charAt(i));
+    }
+
+    /**
+     * Returns this thread's empty string builder to render into before writing elsewhere.
+     */
+    static StringBuilder scratch() {
+        final StringBuilder sb = SCRATCH.get();
+        sb.setLength(0);
+        return sb;
+    }
+
+    private static char digit(final short cell) {
+        return cell != 0 && (cell & (cell - 1)) == 0 ? (char) ('1' + Integer.numberOfTrailingZeros(cell)) : '.';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,337 @@
+package com.hafthor;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Solves puzzles sent over HTTP on localhost, so that many solves share one JVM that stays warmed up, rather than each
+ * paying for starting one. A POST to /solve has a puzzle per line, in any format accepted by
+ * {@link Puzzle#Puzzle(byte[], int, int)}, and gets back a line per puzzle, in the same order, of its solution as 81
+ * digits, or as far as it got with a period for each unknown value, followed by its {@link Puzzle#getStatistics()}.
+ * Blank lines are skipped. A GET of /stats gets the server's {@link #getStatistics()}.
+ * <p>
+ * The puzzles of all requests go into one queue, which is drained into batches for a pool of worker threads, so that
+ * when requests come in faster than they are solved, they are solved together in batches as large as what has
+ * queued, and when they don't, each is solved as soon as it comes in.
+ * <p>
+ * Answers are written as headers and then a body, so unless the JDK's server is run with
+ * {@code -Dsun.net.httpserver.nodelay=true}, as {@link #main(String[])} does, each one waits for the client's delayed
+ * acknowledgement, typically 40 ms. The property is read once, when the first server of the process is created.
+ */
+public class PuzzleServer implements AutoCloseable {
+    private static final int MAX_BATCH_SIZE = 256;
+    private static final int MAX_REQUEST_BYTES = 1 << 20;
+    private static final int LATENCY_SAMPLES = 1 << 16; // the most recent requests to take percentiles of
+
+    private final HttpServer server;
+    private final ExecutorService workers;
+    private final Semaphore batchesInFlight;
+    private final GuessStrategy guessStrategy;
+    private final BlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+    private final Thread dispatcher = new Thread(this::dispatch, "puzzle-server-dispatcher");
+    private volatile boolean running;
+
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private long started, requests, puzzles, batches;
+
+    /**
+     * Constructs a server on a port of localhost, with a worker thread per processor.
+     * @param port the port to listen on, or zero for any free one
+     * @throws IOException if the port can't be listened on
+     */
+    public PuzzleServer(final int port) throws IOException {
+        this(port, Runtime.getRuntime().availableProcessors(), GuessStrategy.FIRST);
+    }
+
+    /**
+     * Constructs a server on a port of localhost.
+     * @param port the port to listen on, or zero for any free one
+     * @param threads the number of worker threads to solve puzzles on
+     * @param guessStrategy where to guess when a puzzle can't be solved any further without guessing
+     * @throws IOException if the port can't be listened on
+     */
+    public PuzzleServer(final int port, final int threads, final GuessStrategy guessStrategy) throws IOException {
+        if (threads < 1)
+            throw new IllegalArgumentException();
+        this.guessStrategy = guessStrategy;
+        workers = Executors.newFixedThreadPool(threads);
+        // no more batches than workers, so that puzzles wait in the queue, where they can join a batch
+        batchesInFlight = new Semaphore(threads);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/solve", this::handleSolve);
+        server.createContext("/stats", this::handleStats);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public synchronized void start() {
+        started = System.nanoTime();
+        running = true;
+        dispatcher.start();
+        server.start();
+    }
+
+    /**
+     * Returns the port the server listens on, e.g. to find the free one picked for a port of zero.
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops taking puzzles, answering any more requests to solve them as unavailable, and stops once the ones already
+     * taken have been solved and answered.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            running = false; // under the lock, so no request queues its puzzles after the dispatcher has seen it
+        }
+        dispatcher.interrupt();
+        try {
+            dispatcher.join();
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        server.stop(0);
+    }
+
+    private void handleSolve(final HttpExchange exchange) throws IOException {
+        final long start = System.nanoTime();
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, "POST puzzles, one per line\n");
+            return;
+        }
+        final byte[] body = exchange.getRequestBody().readNBytes(MAX_REQUEST_BYTES + 1);
+        if (body.length > MAX_REQUEST_BYTES) {
+            respond(exchange, 413, "too many puzzles\n");
+            return;
+        }
+        final List<Puzzle> parsed = new ArrayList<>();
+        int line = 1;
+        try {
+            for (int p = 0, lineStart = 0; p <= body.length; p++) {
+                if (p == body.length || body[p] == '\n') {
+                    if (!Puzzle.isBlank(body, lineStart, p))
+                        parsed.add(new Puzzle(body, lineStart, p - lineStart));
+                    lineStart = p + 1;
+                    line++;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, "not a puzzle on line " + line + "\n");
+            return;
+        }
+        final Request request = new Request(exchange, parsed.toArray(new Puzzle[0]), start);
+        if (request.puzzles.length == 0) {
+            request.complete();
+            return;
+        }
+        synchronized (this) {
+            if (running) {
+                for (int i = 0; i < request.puzzles.length; i++)
+                    queue.add(new Task(request, i));
+                return;
+            }
+        }
+        respond(exchange, 503, "shutting down\n");
+    }
+
+    private void handleStats(final HttpExchange exchange) throws IOException {
+        respond(exchange, 200, getStatistics() + "\n");
+    }
+
+    /**
+     * Drains the queue into batches, each as large as what has queued, up to the maximum, for as long as the server
+     * is running, or has puzzles left to solve.
+     */
+    private void dispatch() {
+        while (running || !queue.isEmpty()) {
+            final List<Task> batch = new ArrayList<>();
+            try {
+                batchesInFlight.acquire();
+            } catch (InterruptedException e) {
+                continue; // closing, so keep going until the queue is empty
+            }
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                batchesInFlight.release();
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+            synchronized (this) {
+                batches++;
+            }
+            workers.execute(() -> {
+                try {
+                    solve(batch);
+                } finally {
+                    batchesInFlight.release();
+                }
+            });
+        }
+    }
+
+    private void solve(final List<Task> batch) {
+        for (final Task task : batch) {
+            try {
+                task.request.puzzles[task.index].solve(true, guessStrategy);
+            } catch (RuntimeException e) {
+                task.request.failed = true;
+            }
+            if (task.request.unsolved.decrementAndGet() == 0)
+                task.request.complete();
+        }
+    }
+
+    private synchronized void recordLatency(final long nanos, final int puzzleCount) {
+        latencies[(int) (requests++ % LATENCY_SAMPLES)] = nanos;
+        puzzles += puzzleCount;
+    }
+
+    private static void respond(final HttpExchange exchange, final int status, final String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.US_ASCII);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=us-ascii");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Returns the number of requests answered.
+     * @return the number of requests answered
+     */
+    public synchronized long getRequests() {
+        return requests;
+    }
+
+    /**
+     * Returns the number of puzzles solved.
+     * @return the number of puzzles solved
+     */
+    public synchronized long getPuzzles() {
+        return puzzles;
+    }
+
+    /**
+     * Returns the number of batches the puzzles were solved in.
+     * @return the number of batches the puzzles were solved in
+     */
+    public synchronized long getBatches() {
+        return batches;
+    }
+
+    /**
+     * Returns the time taken to answer a request, from reading it to writing the answer, that a fraction of the most
+     * recent requests took no longer than, e.g. 0.99 for the 99th percentile.
+     * @param fraction the fraction of requests, from 0 to 1
+     * @return the time taken, in nanoseconds, or zero if no requests have been answered
+     */
+    public synchronized long getLatencyPercentile(final double fraction) {
+        final int count = (int) Math.min(requests, LATENCY_SAMPLES);
+        if (count == 0)
+            return 0;
+        final long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        return sorted[Math.min(count - 1, (int) (fraction * count))];
+    }
+
+    /**
+     * Returns a string representation of the server's metrics, with the latencies in microseconds, and the throughput
+     * in puzzles per second since the server started.
+     */
+    public synchronized String getStatistics() {
+        final double seconds = (System.nanoTime() - started) / 1e9;
+        return " Requests: " + requests +
+                " Puzzles: " + puzzles +
+                " Batches: " + batches +
+                String.format(" p50: %.1f us p99: %.1f us Throughput: %.0f puzzles/s",
+                        getLatencyPercentile(0.5) / 1e3, getLatencyPercentile(0.99) / 1e3, puzzles / seconds);
+    }
+
+    /**
+     * A request's puzzles, and how many of them are left to solve before it can be answered.
+     */
+    private final class Request {
+        private final HttpExchange exchange;
+        private final Puzzle[] puzzles;
+        private final long start;
+        private final AtomicInteger unsolved;
+        private volatile boolean failed;
+
+        private Request(final HttpExchange exchange, final Puzzle[] puzzles, final long start) {
+            this.exchange = exchange;
+            this.puzzles = puzzles;
+            this.start = start;
+            unsolved = new AtomicInteger(puzzles.length);
+        }
+
+        private void complete() {
+            try {
+                if (failed) {
+                    respond(exchange, 500, "couldn't solve a puzzle\n");
+                } else {
+                    final StringBuilder sb = new StringBuilder(puzzles.length * 128);
+                    for (final Puzzle puzzle : puzzles)
+                        PuzzleRenderer.COMPACT.render(puzzle, sb).append(puzzle.getStatistics()).append('\n');
+                    respond(exchange, 200, sb.toString());
+                }
+            } catch (IOException e) {
+                exchange.close(); // the client went away
+            }
+            recordLatency(System.nanoTime() - start, puzzles.length);
+        }
+    }
+
+    /**
+     * A puzzle of a request.
+     */
+    private static final class Task {
+        private final Request request;
+        private final int index;
+
+        private Task(final Request request, final int index) {
+            this.request = request;
+            this.index = index;
+        }
+    }
+
+    /**
+     * Runs a server until the process is stopped, then prints its statistics.
+     * @param args the port to listen on, which defaults to 8080
+     */
+    public static void main(final String[] args) throws IOException {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        final PuzzleServer server = new PuzzleServer(args.length > 0 ? Integer.parseInt(args[0]) : 8080);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            System.out.println(server.getStatistics());
+        }));
+        server.start();
+        System.out.println("Solving puzzles POSTed to http://localhost:" + server.getPort() + "/solve");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.hafthor;
+
+/**
+ * How a bounded solve, i.e. {@link Puzzle#solve(GuessStrategy, long, java.time.Duration, CancellationToken)}, ended.
+ * Whichever it is, the puzzle has the statistics of the search so far.
+ */
+public enum SearchStatus {
+    /**
+     * Exactly one solution was found, which the puzzle is left with, and the search either proved there are no more,
+     * or stopped at a solution limit of one.
+     */
+    SOLVED,
+    /**
+     * The search ran to the end without finding a solution. The puzzle is left as far as propagation got.
+     */
+    UNSOLVABLE,
+    /**
+     * More than one solution was found. The puzzle is left with the last one.
+     */
+    MULTIPLE,
+    /**
+     * The search ran out of guesses or time before it could finish. If it had found a solution, the puzzle is left
+     * with it, though there may be more, and if not, as far as propagation got.
+     */
+    BUDGET_EXCEEDED,
+    /**
+     * The search was cancelled before it could finish, which leaves the puzzle the same way as running out of budget.
+     */
+    CANCELLED
+}
\ No newline at end of file
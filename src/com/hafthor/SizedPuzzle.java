@@ -0,0 +1,336 @@
+package com.hafthor;
+
+/**
+ * A puzzle of any box size from 2 to 5, i.e. a 4x4, 9x9, 16x16 or 25x25 grid, with the possible values of each cell
+ * as an int bitmask, and the units and peers of each size precomputed once. Values are written with the alphabet
+ * 1 to 9 then A to P, as far as the size needs, and unknown values as a period or a zero. Other characters are
+ * ignored, so e.g. a 16x16 puzzle's values are 1 to 9 and A to G.
+ * <p>
+ * Propagation removes the values of known cells from their peers through a work queue, and makes the only cell in a
+ * unit that could be a value known, and search guesses at the cell with the fewest possible values left, since grids
+ * larger than 9x9 have far too many cells for anything less to finish. Every size, 9x9 included, is solved by this
+ * engine; handing a 9x9 puzzle to {@link Puzzle}, whose tables and propagation are specialized for that size, is only
+ * a package-private option for comparing the two, since on sparse grids this engine's hidden singles make up for the
+ * generality.
+ */
+public class SizedPuzzle {
+    /**
+     * The smallest box size supported, i.e. a 4x4 grid.
+     */
+    public static final int MIN_BOX_SIZE = 2;
+
+    /**
+     * The largest box size supported, i.e. a 25x25 grid, whose 25 values fit an int bitmask.
+     */
+    public static final int MAX_BOX_SIZE = 5;
+
+    private static final String ALPHABET = "123456789ABCDEFGHIJKLMNOP";
+
+    private static final Tables[] TABLES = new Tables[MAX_BOX_SIZE + 1];
+
+    static {
+        for (int boxSize = MIN_BOX_SIZE; boxSize <= MAX_BOX_SIZE; boxSize++)
+            TABLES[boxSize] = new Tables(boxSize);
+    }
+
+    private final int boxSize, side, allPossible;
+    private final int[][] units, peers;
+    private int[] grid;
+
+    // cells that became known, but have not been removed from their peers yet
+    private final int[] queue;
+    private int queueHead, queueTail;
+
+    // grids to backtrack to by guessing depth, and the last solution found
+    private final int[][] gridStack;
+    private int[] lastSolution;
+
+    private int guesses, backtracks, solutions;
+
+    /**
+     * Constructs a puzzle from a string representation of it, with a character of the alphabet for each value, and a
+     * period or a zero for each unknown value. Other characters are ignored.
+     * @param boxSize the size of a box, i.e. the square root of the number of values
+     * @param s the puzzle's cells, row by row
+     * @throws IllegalArgumentException if the box size isn't supported, a character of the alphabet is past the values
+     *                                  of the size, or there aren't as many cells as the size has
+     */
+    public SizedPuzzle(final int boxSize, final CharSequence s) {
+        if (boxSize < MIN_BOX_SIZE || boxSize > MAX_BOX_SIZE)
+            throw new IllegalArgumentException();
+        final Tables tables = TABLES[boxSize];
+        this.boxSize = boxSize;
+        side = boxSize * boxSize;
+        allPossible = (1 << side) - 1;
+        units = tables.units;
+        peers = tables.peers;
+        grid = new int[side * side];
+        queue = new int[grid.length];
+        gridStack = new int[grid.length][];
+        int i = 0;
+        for (int p = 0; p < s.length(); p++) {
+            final char c = s.charAt(p);
+            final int value = ALPHABET.indexOf(Character.toUpperCase(c));
+            if (value >= side)
+                throw new IllegalArgumentException("value " + c + " is out of range for " + side + " values");
+            final int cell = value >= 0 ? 1 << value : c == '.' || c == '0' ? allPossible : 0;
+            if (cell != 0) {
+                if (i == grid.length)
+                    throw new IllegalArgumentException();
+                grid[i++] = cell;
+            }
+        }
+        if (i != grid.length)
+            throw new IllegalArgumentException();
+    }
+
+    /**
+     * Returns the size of a box, i.e. the square root of the number of values.
+     * @return the size of a box
+     */
+    public int getBoxSize() {
+        return boxSize;
+    }
+
+    /**
+     * Returns the number of values, which is also the number of cells in each row, column and box.
+     * @return the number of values
+     */
+    public int getSide() {
+        return side;
+    }
+
+    /**
+     * Returns the number of guesses made while solving.
+     * @return the number of guesses made while solving
+     */
+    public int getGuesses() {
+        return guesses;
+    }
+
+    /**
+     * Returns the number of times a guess led to a contradiction.
+     * @return the number of times a guess led to a contradiction
+     */
+    public int getBacktracks() {
+        return backtracks;
+    }
+
+    /**
+     * Returns the number of solutions found by the last solve, at most its limit.
+     * @return the number of solutions found by the last solve
+     */
+    public int getSolutions() {
+        return solutions;
+    }
+
+    /**
+     * Solves the puzzle, stopping at the first solution found. If the puzzle is not solvable, it will be left in an
+     * unsolved state.
+     * @return true if a solution was found
+     */
+    public boolean solve() {
+        return countSolutions(1) > 0;
+    }
+
+    /**
+     * Counts the solutions of the puzzle, stopping as soon as the limit is reached. The puzzle is left with the last
+     * solution found, if any.
+     * @param limit the number of solutions at which to stop searching
+     * @return the number of solutions found, at most the limit
+     */
+    public int countSolutions(final int limit) {
+        return countSolutions(limit, false);
+    }
+
+    /**
+     * Counts the solutions of the puzzle, either with this engine, or for a 9x9 puzzle, on a {@link Puzzle}, which lets
+     * the two be compared.
+     */
+    int countSolutions(final int limit, final boolean fastPath) {
+        solutions = 0;
+        if (fastPath && boxSize == 3) {
+            final short[] cells = new short[grid.length];
+            for (int i = 0; i < grid.length; i++)
+                cells[i] = (short) grid[i];
+            final Puzzle puzzle = new Puzzle(cells);
+            puzzle.setPropagation(Puzzle.Propagation.QUEUE);
+            solutions = puzzle.countSolutions(limit);
+            final short[] solved = puzzle.getGrid();
+            for (int i = 0; i < grid.length; i++)
+                grid[i] = solved[i];
+            guesses += puzzle.getGuesses();
+            backtracks += puzzle.getBacktracks();
+            return solutions;
+        }
+        queueHead = queueTail = 0;
+        for (int i = 0; i < grid.length; i++)
+            if (Integer.bitCount(grid[i]) == 1)
+                queue[queueTail++] = i;
+        search(limit, 0);
+        if (solutions > 0)
+            System.arraycopy(lastSolution, 0, grid, 0, grid.length);
+        else if (gridStack[0] != null)
+            System.arraycopy(gridStack[0], 0, grid, 0, grid.length); // as far as propagation got
+        return solutions;
+    }
+
+    /**
+     * Propagates the queued known cells, then guesses at the cell with the fewest possible values, trying each one on
+     * the grid restored from before the guess.
+     * @return true once the limit is reached
+     */
+    private boolean search(final int limit, final int depth) {
+        if (!propagate())
+            return false;
+        int best = -1, bestCount = side + 1;
+        for (int i = 0; i < grid.length && bestCount > 2; i++) {
+            final int count = Integer.bitCount(grid[i]);
+            if (count > 1 && count < bestCount) {
+                best = i;
+                bestCount = count;
+            }
+        }
+        if (best == -1) {
+            if (lastSolution == null)
+                lastSolution = new int[grid.length];
+            System.arraycopy(grid, 0, lastSolution, 0, grid.length);
+            return ++solutions >= limit;
+        }
+        if (gridStack[depth] == null)
+            gridStack[depth] = new int[grid.length];
+        final int[] gridCopy = gridStack[depth];
+        System.arraycopy(grid, 0, gridCopy, 0, grid.length);
+        for (int values = gridCopy[best]; values != 0; values &= values - 1) {
+            grid[best] = Integer.lowestOneBit(values);
+            queueHead = queueTail = 0;
+            queue[queueTail++] = best;
+            guesses++;
+            if (search(limit, depth + 1))
+                return true;
+            System.arraycopy(gridCopy, 0, grid, 0, grid.length);
+        }
+        return false;
+    }
+
+    /**
+     * Removes the values of queued known cells from their peers, and makes each cell that is the only one in a unit
+     * that could be a particular value known, until neither changes anything.
+     * @return false if a cell was left with no possible values, or a value with no cell in a unit
+     */
+    private boolean propagate() {
+        while (true) {
+            while (queueHead < queueTail) {
+                final int i = queue[queueHead++];
+                final int cur = grid[i];
+                for (final int peer : peers[i]) {
+                    if ((grid[peer] & cur) != 0) {
+                        final int cell = grid[peer] & ~cur;
+                        grid[peer] = cell;
+                        if (cell == 0) {
+                            backtracks++;
+                            return false;
+                        }
+                        if ((cell & (cell - 1)) == 0)
+                            queue[queueTail++] = peer;
+                    }
+                }
+            }
+            for (final int[] unit : units) {
+                int once = 0, twice = 0, known = 0;
+                for (final int i : unit) {
+                    final int cell = grid[i];
+                    twice |= once & cell;
+                    once |= cell;
+                    if ((cell & (cell - 1)) == 0)
+                        known |= cell;
+                }
+                if (once != allPossible) {
+                    backtracks++;
+                    return false;
+                }
+                for (int loners = once & ~twice & ~known; loners != 0; loners &= loners - 1) {
+                    final int b = Integer.lowestOneBit(loners);
+                    for (final int i : unit) {
+                        if ((grid[i] & b) != 0) {
+                            grid[i] = b;
+                            queue[queueTail++] = i;
+                            break;
+                        }
+                    }
+                }
+            }
+            if (queueHead == queueTail)
+                return true;
+        }
+    }
+
+    /**
+     * Returns true if every cell has only one possible value.
+     * @return true if the puzzle is solved
+     */
+    public boolean isSolved() {
+        for (final int cell : grid)
+            if (Integer.bitCount(cell) != 1)
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns a string representation of the statistics for the puzzle.
+     */
+    public String getStatistics() {
+        return (guesses > 0 ? " Guesses: " + guesses : "") +
+                (backtracks > 0 ? " Backtracks: " + backtracks : "") +
+                (solutions > 1 ? " Solutions: " + solutions : "");
+    }
+
+    /**
+     * Returns a string representation of the puzzle, a row per line, with a space between boxes, and a period for
+     * each unknown value.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(grid.length + side * (boxSize + 1));
+        for (int i = 0; i < grid.length; i++) {
+            if (i != 0 && i % side == 0)
+                sb.append('\n');
+            else if (i % boxSize == 0 && i % side != 0)
+                sb.append(' ');
+            final int cell = grid[i];
+            sb.append(Integer.bitCount(cell) == 1 ? ALPHABET.charAt(Integer.numberOfTrailingZeros(cell)) : '.');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The units and peers of a box size, i.e. the cells of each row, column and box, and the other cells that share
+     * a unit with each cell.
+     */
+    private static final class Tables {
+        private final int[][] units, peers;
+
+        private Tables(final int boxSize) {
+            final int side = boxSize * boxSize, cells = side * side;
+            units = new int[3 * side][side];
+            for (int n = 0; n < side; n++) {
+                for (int m = 0; m < side; m++) {
+                    units[n][m] = n * side + m;
+                    units[side + n][m] = m * side + n;
+                    units[2 * side + n][m] = ((n / boxSize) * boxSize + m / boxSize) * side +
+                            (n % boxSize) * boxSize + m % boxSize;
+                }
+            }
+            peers = new int[cells][3 * (side - 1) - 2 * (boxSize - 1)];
+            for (int i = 0; i < cells; i++) {
+                final int row = i / side, col = i % side, box = (row / boxSize) * boxSize + col / boxSize;
+                int count = 0;
+                for (int j = 0; j < cells; j++) {
+                    final int r = j / side, c = j % side;
+                    if (i != j && (r == row || c == col || (r / boxSize) * boxSize + c / boxSize == box))
+                        peers[i][count++] = j;
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,117 @@
+package com.hafthor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of solved puzzles, keyed by their {@link CanonicalForm}, so that a puzzle that is the same as one
+ * solved before up to relabeling, reordering rows and columns within bands and stacks, and transposing, gets the
+ * earlier solution mapped onto it instead of being solved again. Once full, the least recently used solution is
+ * evicted. One cache can be shared by many puzzles, on many threads.
+ * <p>
+ * The key is only of the known values, so only a puzzle whose unknown cells could still be any value is looked up or
+ * added, not one that has had candidates taken out, and a solution is only mapped onto a puzzle if it keeps all the
+ * puzzle's known values.
+ * <p>
+ * A puzzle that gets its solution from the cache also gets the statistics of the solve that put it there, so they
+ * are those of whichever of the puzzles of the same canonical form was solved first, with whatever guess strategy
+ * and solution limit it used.
+ */
+public class SolutionCache {
+    private final int capacity;
+    private final LinkedHashMap<String, Entry> entries;
+    private long hits, misses, evictions;
+
+    /**
+     * Constructs an empty cache.
+     * @param capacity the number of solutions to keep
+     */
+    public SolutionCache(final int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException();
+        this.capacity = capacity;
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                if (size() <= SolutionCache.this.capacity)
+                    return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    synchronized Entry get(final String key) {
+        final Entry entry = entries.get(key);
+        if (entry == null)
+            misses++;
+        else
+            hits++;
+        return entry;
+    }
+
+    synchronized void put(final String key, final Entry entry) {
+        entries.put(key, entry);
+    }
+
+    /**
+     * Returns the number of solutions kept, which is at most the capacity.
+     * @return the number of solutions kept, which is at most the capacity
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of puzzles solved from the cache.
+     * @return the number of puzzles solved from the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of puzzles that had to be solved, because the cache didn't have their solution.
+     * @return the number of puzzles that had to be solved, because the cache didn't have their solution
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of solutions evicted to make room for newer ones.
+     * @return the number of solutions evicted to make room for newer ones
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns a string representation of the cache's metrics.
+     */
+    public synchronized String getStatistics() {
+        return " Size: " + entries.size() +
+                " Hits: " + hits +
+                " Misses: " + misses +
+                " Evictions: " + evictions;
+    }
+
+    /**
+     * A solved puzzle, in its canonical form's rows, columns and values, with the statistics of solving it.
+     */
+    static final class Entry {
+        final short[] grid;
+        final int passes, reduces, loners, guesses, backtracks, solutions;
+
+        Entry(final short[] grid, final int passes, final int reduces, final int loners, final int guesses,
+              final int backtracks, final int solutions) {
+            this.grid = grid;
+            this.passes = passes;
+            this.reduces = reduces;
+            this.loners = loners;
+            this.guesses = guesses;
+            this.backtracks = backtracks;
+            this.solutions = solutions;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.hafthor;
+
+/**
+ * The totals of the statistics of many puzzles, each solved on its own, e.g. by {@link PuzzleBatchSolver} or
+ * {@link PuzzleFileSolver}.
+ */
+public class SolveTotals {
+    private long puzzles, solved, passes, reduces, loners, guesses, backtracks;
+
+    void add(final Puzzle puzzle) {
+        puzzles++;
+        if (puzzle.isSolved())
+            solved++;
+        passes += puzzle.getPasses();
+        reduces += puzzle.getReduces();
+        loners += puzzle.getLoners();
+        guesses += puzzle.getGuesses();
+        backtracks += puzzle.getBacktracks();
+    }
+
+    /**
+     * Returns the number of puzzles.
+     * @return the number of puzzles
+     */
+    public long getPuzzles() {
+        return puzzles;
+    }
+
+    /**
+     * Returns the number of puzzles that were solved.
+     * @return the number of puzzles that were solved
+     */
+    public long getSolved() {
+        return solved;
+    }
+
+    /**
+     * Returns the total number of passes of reduces over all puzzles.
+     * @return the total number of passes of reduces over all puzzles
+     */
+    public long getPasses() {
+        return passes;
+    }
+
+    /**
+     * Returns the total number of reduces over all puzzles.
+     * @return the total number of reduces over all puzzles
+     */
+    public long getReduces() {
+        return reduces;
+    }
+
+    /**
+     * Returns the total number of loners over all puzzles.
+     * @return the total number of loners over all puzzles
+     */
+    public long getLoners() {
+        return loners;
+    }
+
+    /**
+     * Returns the total number of guesses over all puzzles.
+     * @return the total number of guesses over all puzzles
+     */
+    public long getGuesses() {
+        return guesses;
+    }
+
+    /**
+     * Returns the total number of backtracks over all puzzles.
+     * @return the total number of backtracks over all puzzles
+     */
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    /**
+     * Returns a string representation of the total statistics, in the same form as {@link Puzzle#getStatistics()}.
+     */
+    public String getStatistics() {
+        return " Puzzles: " + puzzles +
+                " Solved: " + solved +
+                (passes > 0 ? " Passes: " + passes : "") +
+                (reduces > 0 ? " Reduces: " + reduces : "") +
+                (loners > 0 ? " Loners: " + loners : "") +
+                (guesses > 0 ? " Guesses: " + guesses : "") +
+                (backtracks > 0 ? " Backtracks: " + backtracks : "");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.hafthor;
+
+/**
+ * A search engine that a {@link Puzzle} can hand its grid to instead of guessing and backtracking itself, set with
+ * {@link Puzzle#setSolver(Solver)}. The grid is passed in the same form {@link Puzzle} uses, i.e. 81 cells of 9-bit
+ * bitmasks of possible values, so a partly propagated grid can be searched as well as one of only givens.
+ * Implementations may keep state between searches to avoid allocating, so unless documented otherwise, one shouldn't
+ * be used by more than one thread at a time.
+ */
+public interface Solver {
+    /**
+     * Searches for solutions of a grid, stopping as soon as the limit is reached.
+     * @param grid the cells, as 9-bit bitmasks of possible values, which are replaced by the last solution found, if
+     *             any, and are otherwise left as they were
+     * @param limit the number of solutions at which to stop searching
+     * @return the number of solutions found, at most the limit
+     */
+    int solve(short[] grid, int limit);
+
+    /**
+     * Returns the number of guesses made by the last search, i.e. choices between more than one possible value.
+     * @return the number of guesses made by the last search
+     */
+    default int getGuesses() {
+        return 0;
+    }
+
+    /**
+     * Returns the number of times the last search had to back up because a guess led to a contradiction.
+     * @return the number of times the last search had to back up
+     */
+    default int getBacktracks() {
+        return 0;
+    }
+}
\ No newline at end of file
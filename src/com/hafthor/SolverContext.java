@@ -0,0 +1,69 @@
+package com.hafthor;
+
+import java.util.Random;
+
+/**
+ * Solves puzzles one after the other on one {@link Puzzle}, reset to each in turn, so that once its buffers have all
+ * been allocated, solving allocates nothing, however many puzzles there are. The puzzle's random number generator is
+ * reseeded with zero for each one, so that each is solved exactly as a new {@link Puzzle#Puzzle(String)} would be.
+ * <p>
+ * The puzzle is configured once, through {@link #getPuzzle()}, e.g. with its propagation, rules, or a
+ * {@link DlxSolver}, and those settings are kept for every puzzle solved. It is not thread-safe, so each thread should
+ * have its own, e.g. through a {@link ThreadLocal}.
+ */
+public final class SolverContext {
+    private final Random random = new Random(0);
+    private final Puzzle puzzle = new Puzzle(".".repeat(9 * 9), random);
+    private final GuessStrategy guessStrategy;
+
+    /**
+     * Constructs a context that solves the way a new puzzle does by default, i.e. guessing at the first unsolved cell.
+     */
+    public SolverContext() {
+        this(GuessStrategy.FIRST);
+    }
+
+    /**
+     * Constructs a context that solves with a guess strategy.
+     * @param guessStrategy where to guess when a puzzle can't be solved any further without guessing
+     */
+    public SolverContext(final GuessStrategy guessStrategy) {
+        this.guessStrategy = guessStrategy;
+    }
+
+    /**
+     * Returns the puzzle that is reset to each puzzle solved, to configure it, or to read the last one solved.
+     * @return the puzzle that is reset to each puzzle solved
+     */
+    public Puzzle getPuzzle() {
+        return puzzle;
+    }
+
+    /**
+     * Solves a puzzle, in the same format as {@link Puzzle#Puzzle(String)}, quietly.
+     * @param s the puzzle's text
+     * @return the context's puzzle, solved, or as far as it got, which is only valid until the next solve
+     * @throws IllegalArgumentException if the text doesn't have 81 cells
+     */
+    public Puzzle solve(final CharSequence s) {
+        random.setSeed(0);
+        puzzle.reset(s);
+        puzzle.solve(true, guessStrategy);
+        return puzzle;
+    }
+
+    /**
+     * Solves a puzzle from ASCII text, in the same format as {@link Puzzle#Puzzle(byte[], int, int)}, quietly.
+     * @param bytes the text
+     * @param offset where the puzzle's text starts
+     * @param length the length of the puzzle's text
+     * @return the context's puzzle, solved, or as far as it got, which is only valid until the next solve
+     * @throws IllegalArgumentException if the text doesn't have 81 cells
+     */
+    public Puzzle solve(final byte[] bytes, final int offset, final int length) {
+        random.setSeed(0);
+        puzzle.reset(bytes, offset, length);
+        puzzle.solve(true, guessStrategy);
+        return puzzle;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.hafthor;
+
+/**
+ * Gets told what a {@link Puzzle} does while solving, e.g. to time it or to export metrics, in more detail than its
+ * statistics. Every method does nothing by default, so only the events of interest need overriding. The methods are
+ * called on the solving thread, in the middle of solving, so they should be quick, and must not modify the puzzle.
+ * <p>
+ * With {@link #NONE}, which is the default, the calls compile away to nothing once the JIT has inlined them.
+ */
+public interface SolverListener {
+    /**
+     * A listener that ignores everything.
+     */
+    SolverListener NONE = new SolverListener() {
+    };
+
+    /**
+     * Called when solving starts.
+     * @param puzzle the puzzle being solved
+     */
+    default void solveStarted(Puzzle puzzle) {
+    }
+
+    /**
+     * Called when solving ends, whether or not the puzzle was solved.
+     * @param puzzle the puzzle being solved
+     */
+    default void solveEnded(Puzzle puzzle) {
+    }
+
+    /**
+     * Called when a pass of propagating known values and loners starts.
+     * @param puzzle the puzzle being solved
+     */
+    default void passStarted(Puzzle puzzle) {
+    }
+
+    /**
+     * Called when a pass of propagating known values and loners ends.
+     * @param puzzle the puzzle being solved
+     */
+    default void passEnded(Puzzle puzzle) {
+    }
+
+    /**
+     * Called when a known value is removed from a peer. Not called when propagating on a bitboard, which removes
+     * values from many cells at once.
+     * @param puzzle the puzzle being solved
+     * @param cell the index of the peer
+     * @param value the bitmask of the value removed
+     */
+    default void reduced(Puzzle puzzle, int cell, short value) {
+    }
+
+    /**
+     * Called when a cell is found to be the only one in a unit that could be a value. Not called when propagating on
+     * a bitboard, which places many at once.
+     * @param puzzle the puzzle being solved
+     * @param cell the index of the cell
+     * @param value the bitmask of the value
+     */
+    default void lonerFound(Puzzle puzzle, int cell, short value) {
+    }
+
+    /**
+     * Called when a value is guessed for a cell.
+     * @param puzzle the puzzle being solved
+     * @param cell the index of the cell
+     * @param value the bitmask of the value
+     * @param depth how many guesses this one is within
+     */
+    default void guessed(Puzzle puzzle, int cell, short value, int depth) {
+    }
+
+    /**
+     * Called when a guess turns out to be wrong.
+     * @param puzzle the puzzle being solved
+     * @param depth how many guesses the wrong one is within
+     */
+    default void backtracked(Puzzle puzzle, int depth) {
+    }
+
+    /**
+     * Called when a solution is found, whether by guessing or by propagation alone.
+     * @param puzzle the puzzle being solved, which holds the solution for the duration of the call
+     */
+    default void solutionFound(Puzzle puzzle) {
+    }
+}
\ No newline at end of file
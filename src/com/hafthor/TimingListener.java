@@ -0,0 +1,107 @@
+package com.hafthor;
+
+/**
+ * A {@link SolverListener} that adds up how long solving takes, split into propagating and guessing, and how many of
+ * each event there are, over any number of puzzles solved one after the other. It is not thread-safe, so it should
+ * not be shared by puzzles solved at the same time, or used with {@link Puzzle#solveInParallel}.
+ */
+public class TimingListener implements SolverListener {
+    private long solveStart, passStart;
+    private long solveNanos, passNanos;
+    private long solves, passes, reduces, loners, guesses, backtracks, solutions;
+
+    @Override
+    public void solveStarted(final Puzzle puzzle) {
+        solves++;
+        solveStart = System.nanoTime();
+    }
+
+    @Override
+    public void solveEnded(final Puzzle puzzle) {
+        solveNanos += System.nanoTime() - solveStart;
+    }
+
+    @Override
+    public void passStarted(final Puzzle puzzle) {
+        passes++;
+        passStart = System.nanoTime();
+    }
+
+    @Override
+    public void passEnded(final Puzzle puzzle) {
+        passNanos += System.nanoTime() - passStart;
+    }
+
+    @Override
+    public void reduced(final Puzzle puzzle, final int cell, final short value) {
+        reduces++;
+    }
+
+    @Override
+    public void lonerFound(final Puzzle puzzle, final int cell, final short value) {
+        loners++;
+    }
+
+    @Override
+    public void guessed(final Puzzle puzzle, final int cell, final short value, final int depth) {
+        guesses++;
+    }
+
+    @Override
+    public void backtracked(final Puzzle puzzle, final int depth) {
+        backtracks++;
+    }
+
+    @Override
+    public void solutionFound(final Puzzle puzzle) {
+        solutions++;
+    }
+
+    /**
+     * Returns the total time spent solving, in nanoseconds.
+     * @return the total time spent solving, in nanoseconds
+     */
+    public long getSolveNanos() {
+        return solveNanos;
+    }
+
+    /**
+     * Returns the time spent in passes of propagating known values and loners, in nanoseconds.
+     * @return the time spent in passes of propagating known values and loners, in nanoseconds
+     */
+    public long getPropagationNanos() {
+        return passNanos;
+    }
+
+    /**
+     * Returns the time spent solving other than in passes, i.e. mostly choosing guesses and backtracking, in
+     * nanoseconds.
+     * @return the time spent solving other than in passes, in nanoseconds
+     */
+    public long getGuessingNanos() {
+        return solveNanos - passNanos;
+    }
+
+    /**
+     * Returns the number of puzzles solved.
+     * @return the number of puzzles solved
+     */
+    public long getSolves() {
+        return solves;
+    }
+
+    /**
+     * Returns a string representation of the times and the numbers of events.
+     */
+    public String getStatistics() {
+        return " Solves: " + solves +
+                String.format(" Solve: %.1f us Propagation: %.1f us Guessing: %.1f us", solveNanos / 1e3,
+                        passNanos / 1e3, getGuessingNanos() / 1e3) +
+                " Passes: " + passes +
+                " Reduces: " + reduces +
+                " Loners: " + loners +
+                " Guesses: " + guesses +
+                " Backtracks: " + backtracks +
+                " Solutions: " + solutions;
+    }
+}
\ No newline at end of file
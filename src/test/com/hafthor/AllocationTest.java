@@ -0,0 +1,47 @@
+package com.hafthor;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that guessing backtracks through the puzzle's preallocated grids rather than copying the grid at each guess,
+ * using the bytes the thread allocates, as counted by the JVM.
+ */
+class AllocationTest {
+    // needs hundreds of guesses, and guesses many levels deep
+    private static final String HARD = "8........" + "..36....." + ".7..9.2.." +
+            ".5...7..." + "....457.." + "...1...3." +
+            "..1....68" + "..85...1." + ".9....4..";
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void guessingAllocatesLessThanAGridPerGuess() {
+        for (int i = 0; i < 20; i++) // warm up
+            new Puzzle(HARD).solve(true, false);
+        final Puzzle puzzle = new Puzzle(HARD);
+        final long before = THREADS.getCurrentThreadAllocatedBytes();
+        puzzle.solve(true, false);
+        final long bytes = THREADS.getCurrentThreadAllocatedBytes() - before;
+        assertTrue(puzzle.getGuesses() > 100);
+        assertTrue(bytes < (long) puzzle.getGuesses() * 9 * 9 * Short.BYTES / 4,
+                bytes + " bytes for " + puzzle.getGuesses() + " guesses");
+    }
+
+    @Test
+    void solvingAgainAfterResetAllocatesNothing() {
+        final SolverContext context = new SolverContext();
+        for (int i = 0; i < 20; i++) // warm up, and allocate the grids once
+            context.solve(HARD);
+        final long before = THREADS.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 10; i++)
+            context.solve(HARD);
+        assertEquals(0, THREADS.getCurrentThreadAllocatedBytes() - before);
+        assertTrue(context.getPuzzle().isSolved());
+    }
+}
\ No newline at end of file
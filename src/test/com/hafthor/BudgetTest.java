@@ -0,0 +1,41 @@
+package com.hafthor;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that a bounded solve rejects a budget that can't be kept, and stops within the one it is given.
+ */
+class BudgetTest {
+    // needs hundreds of guesses
+    private static final String HARD = "8........" + "..36....." + ".7..9.2.." +
+            ".5...7..." + "....457.." + "...1...3." +
+            "..1....68" + "..85...1." + ".9....4..";
+
+    @Test
+    void rejectsANegativeNumberOfGuesses() {
+        assertThrows(IllegalArgumentException.class, () -> new Puzzle(HARD).solve(GuessStrategy.FIRST, -1,
+                Duration.ofSeconds(1), CancellationToken.NONE));
+    }
+
+    @Test
+    void rejectsATimeoutThatIsNotPositive() {
+        for (final Duration timeout : new Duration[]{Duration.ZERO, Duration.ofMillis(-1)})
+            assertThrows(IllegalArgumentException.class, () -> new Puzzle(HARD).solve(GuessStrategy.FIRST,
+                    Long.MAX_VALUE, timeout, CancellationToken.NONE));
+    }
+
+    @Test
+    void stopsAtTheNumberOfGuesses() {
+        for (final long maxGuesses : new long[]{0, 1, 10}) {
+            final Puzzle puzzle = new Puzzle(HARD);
+            assertEquals(SearchStatus.BUDGET_EXCEEDED, puzzle.solve(GuessStrategy.FIRST, maxGuesses,
+                    Duration.ofSeconds(10), CancellationToken.NONE));
+            assertEquals(maxGuesses, puzzle.getGuesses());
+        }
+    }
+}
\ No newline at end of file
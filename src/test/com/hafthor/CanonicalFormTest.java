@@ -0,0 +1,131 @@
+package com.hafthor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the canonical form of a puzzle is the same under each transformation it is meant to ignore, and that a
+ * solution cached for one puzzle maps back onto a transformed copy of it as a solution of that copy.
+ */
+class CanonicalFormTest {
+    private static final int COPIES = 5;
+    private static final int[] IDENTITY = {0, 1, 2, 3, 4, 5, 6, 7, 8};
+
+    private static String key(final String puzzle) {
+        return new Puzzle(puzzle).getCanonicalForm().getKey();
+    }
+
+    /**
+     * Returns the puzzle with the cell at each row and column taken from the puzzle's row and column given.
+     */
+    private static String permute(final String puzzle, final int[] rows, final int[] cols, final boolean transpose) {
+        final StringBuilder sb = new StringBuilder(9 * 9);
+        for (int r = 0; r < 9; r++)
+            for (int c = 0; c < 9; c++)
+                sb.append(puzzle.charAt(transpose ? cols[c] * 9 + rows[r] : rows[r] * 9 + cols[c]));
+        return sb.toString();
+    }
+
+    private static int[] swap(final int a, final int b, final int size) {
+        final int[] order = {0, 1, 2, 3, 4, 5, 6, 7, 8};
+        for (int n = 0; n < size; n++) {
+            order[a * size + n] = b * size + n;
+            order[b * size + n] = a * size + n;
+        }
+        return order;
+    }
+
+    private static String relabel(final String puzzle, final String values) {
+        final StringBuilder sb = new StringBuilder(puzzle.length());
+        for (int i = 0; i < puzzle.length(); i++) {
+            final char c = puzzle.charAt(i);
+            sb.append(c == '.' ? c : values.charAt(c - '1'));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the puzzle with its bands and stacks, and the rows and columns within them, reordered, possibly
+     * transposed, and its values relabeled, all at random.
+     */
+    private static String transform(final String puzzle, final Random random) {
+        final List<Character> values = new ArrayList<>(List.of('1', '2', '3', '4', '5', '6', '7', '8', '9'));
+        Collections.shuffle(values, random);
+        final StringBuilder labels = new StringBuilder();
+        for (final char value : values)
+            labels.append(value);
+        return relabel(permute(puzzle, bandPermutation(random), bandPermutation(random), random.nextBoolean()),
+                labels.toString());
+    }
+
+    private static int[] bandPermutation(final Random random) {
+        final List<Integer> bands = new ArrayList<>(List.of(0, 3, 6));
+        Collections.shuffle(bands, random);
+        final int[] permutation = new int[9];
+        int n = 0;
+        for (final int band : bands) {
+            final List<Integer> lines = new ArrayList<>(List.of(0, 1, 2));
+            Collections.shuffle(lines, random);
+            for (final int line : lines)
+                permutation[n++] = band + line;
+        }
+        return permutation;
+    }
+
+    @Test
+    void keyIsTheSameUnderEachTransformation() {
+        final List<UnaryOperator<String>> transformations = List.of(
+                p -> permute(p, swap(0, 2, 3), IDENTITY, false), // bands
+                p -> permute(p, IDENTITY, swap(1, 2, 3), false), // stacks
+                p -> permute(p, swap(3, 5, 1), IDENTITY, false), // rows within a band
+                p -> permute(p, IDENTITY, swap(6, 7, 1), false), // columns within a stack
+                p -> permute(p, IDENTITY, IDENTITY, true),
+                p -> relabel(p, "934781256"));
+        for (final String puzzle : Checks.corpus()) {
+            final String key = key(puzzle);
+            for (final UnaryOperator<String> transformation : transformations)
+                assertEquals(key, key(transformation.apply(puzzle)), puzzle);
+        }
+    }
+
+    @Test
+    void keyIsTheSameUnderRandomTransformations() {
+        final Random random = new Random(0);
+        for (final String puzzle : Checks.corpus()) {
+            final String key = key(puzzle);
+            for (int copy = 0; copy < COPIES; copy++)
+                assertEquals(key, key(transform(puzzle, random)), puzzle);
+        }
+    }
+
+    @Test
+    void cachedSolutionSolvesATransformedPuzzle() {
+        final Random random = new Random(0);
+        final List<String> puzzles = Checks.corpus();
+        final SolutionCache cache = new SolutionCache(puzzles.size());
+        for (final String puzzle : puzzles) {
+            final Puzzle original = new Puzzle(puzzle);
+            original.setSolutionCache(cache);
+            original.solve(true, false);
+        }
+        final long misses = cache.getMisses();
+        for (final String puzzle : puzzles) {
+            for (int copy = 0; copy < COPIES; copy++) {
+                final String transformed = transform(puzzle, random);
+                final Puzzle copied = new Puzzle(transformed);
+                copied.setSolutionCache(cache);
+                copied.solve(true, false);
+                assertTrue(Checks.isSolutionOf(Checks.cells(copied.toString()), transformed), transformed);
+            }
+        }
+        assertEquals(misses, cache.getMisses()); // every copy was a hit
+    }
+}
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.hafthor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What the tests check puzzles and their solutions with.
+ */
+final class Checks {
+    private Checks() {
+    }
+
+    /**
+     * Returns the sample puzzles from {@link Main}, each as 81 characters of a digit or a period.
+     */
+    static List<String> corpus() {
+        final List<String> puzzles = new ArrayList<>();
+        for (final String input : Main.corpus())
+            puzzles.add(cells(input.split("\n")[1]));
+        return puzzles;
+    }
+
+    /**
+     * Returns the cells of a puzzle's text, e.g. its {@link Puzzle#toString()}, as a digit or a period for each.
+     */
+    static String cells(final String text) {
+        return text.replaceAll("[^1-9.]", "");
+    }
+
+    /**
+     * Returns the cells of a grid of 9-bit bitmasks, as a digit for each known value or a period for each unknown.
+     */
+    static String cells(final short[] grid) {
+        final StringBuilder sb = new StringBuilder(grid.length);
+        for (final short cell : grid)
+            sb.append(Integer.bitCount(cell) == 1 ? (char) ('1' + Integer.numberOfTrailingZeros(cell)) : '.');
+        return sb.toString();
+    }
+
+    /**
+     * Returns true if the solution is complete, keeps all the puzzle's known values, and has no value twice in a unit.
+     */
+    static boolean isSolutionOf(final String solution, final String puzzle) {
+        if (solution.length() != puzzle.length() || solution.indexOf('.') >= 0)
+            return false;
+        for (int i = 0; i < puzzle.length(); i++)
+            if (puzzle.charAt(i) != '.' && puzzle.charAt(i) != solution.charAt(i))
+                return false;
+        for (final int[] unit : Puzzle.UNITS) {
+            int seen = 0;
+            for (final int i : unit)
+                seen |= 1 << (solution.charAt(i) - '1');
+            if (seen != 0x1ff)
+                return false;
+        }
+        return true;
+    }
+}
\ No newline at end of file
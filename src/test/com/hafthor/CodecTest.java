@@ -0,0 +1,68 @@
+package com.hafthor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the corpus, as given, part way through solving, and solved, comes back the same from binary, with and
+ * without candidates, one puzzle at a time and through a file.
+ */
+class CodecTest {
+    @TempDir
+    Path dir;
+
+    private static List<Puzzle> puzzles() {
+        final List<Puzzle> puzzles = new ArrayList<>();
+        for (final String input : Main.corpus()) {
+            final String s = input.split("\n")[1];
+            puzzles.add(new Puzzle(s));
+            final Puzzle reduced = new Puzzle(s);
+            reduced.solveExclusionary();
+            puzzles.add(reduced);
+            final Puzzle solved = new Puzzle(s);
+            solved.solve(true, false);
+            puzzles.add(solved);
+        }
+        return puzzles;
+    }
+
+    private static void assertSame(final Puzzle expected, final Puzzle actual, final boolean candidates) {
+        assertEquals(expected.toString(), actual.toString());
+        assertArrayEquals(expected.toBytes(candidates), actual.toBytes(candidates));
+    }
+
+    @Test
+    void eachPuzzleRoundTrips() {
+        for (final boolean candidates : new boolean[]{false, true})
+            for (final Puzzle puzzle : puzzles())
+                assertSame(puzzle, Puzzle.fromBytes(puzzle.toBytes(candidates)), candidates);
+    }
+
+    @Test
+    void puzzlesRoundTripThroughAFile() throws IOException {
+        final List<Puzzle> puzzles = puzzles();
+        for (final boolean candidates : new boolean[]{false, true}) {
+            final Path file = dir.resolve("puzzles-" + candidates + ".bin");
+            try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+                PuzzleCodec.write(out, puzzles, candidates);
+            }
+            final List<Puzzle> read = new ArrayList<>();
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                PuzzleCodec.read(in, candidates, read::add);
+            }
+            assertEquals(puzzles.size(), read.size());
+            for (int i = 0; i < puzzles.size(); i++)
+                assertSame(puzzles.get(i), read.get(i), candidates);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.hafthor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that each puzzle has its own random number generator, so that generating puzzles on several threads at once
+ * gives each seed the same puzzle as generating it alone.
+ */
+class ConcurrencyTest {
+    private static final int SEEDS = 20, THREADS = 4;
+
+    @Test
+    void generatingOnManyThreadsMatchesGeneratingAlone() throws Exception {
+        final String[] expected = new String[SEEDS];
+        for (int seed = 0; seed < SEEDS; seed++)
+            expected[seed] = new Puzzle(seed).toString();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<String>> futures = new ArrayList<>();
+            for (int repeat = 0; repeat < THREADS; repeat++) {
+                for (int seed = 0; seed < SEEDS; seed++) {
+                    final int s = seed;
+                    futures.add(executor.submit(() -> new Puzzle(s).toString()));
+                }
+            }
+            for (int i = 0; i < futures.size(); i++)
+                assertEquals(expected[i % SEEDS], futures.get(i).get(), "seed " + i % SEEDS);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.hafthor;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * Checks that generating from a solution takes about as long for every seed, rather than some seeds taking minutes to
+ * fill in the grid, and that each puzzle has only one solution.
+ */
+class GeneratorTest {
+    private static final int SEEDS = 300;
+
+    @Test
+    void generatesFromSolutionForManySeedsQuickly() {
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            for (int seed = 0; seed < SEEDS; seed++) {
+                final Puzzle puzzle = Puzzle.generateFromSolution(seed);
+                assertEquals(1, new Puzzle(puzzle.toString()).countSolutions(2), "seed " + seed);
+            }
+        });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.hafthor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that counting solutions with a parallel search stops at the solution limit, like solving one branch at a
+ * time does, on the first generated puzzle, which has over a million solutions.
+ */
+class ParallelSearchTest {
+    private static final String GEN1 = "........." + "...1....6" + "5........" +
+            ".5.3..81." + "........." + "....8...." +
+            "9.8..1.5." + "...6.8.3." + "..7..9...";
+
+    @Test
+    void countingStopsAtTheSolutionLimit() {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (final int limit : new int[]{1, Puzzle.DEFAULT_SOLUTION_LIMIT, 5})
+                assertCountsTo(limit, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void assertCountsTo(final int limit, final ForkJoinPool pool) {
+        final Puzzle sequential = new Puzzle(GEN1);
+        sequential.setSolutionLimit(limit);
+        sequential.solve(true, GuessStrategy.MRV);
+        final Puzzle parallel = new Puzzle(GEN1);
+        parallel.setSolutionLimit(limit);
+        parallel.solveInParallel(pool, 2, true, GuessStrategy.MRV);
+        assertEquals(limit, sequential.getSolutions());
+        assertEquals(limit, parallel.getSolutions());
+        assertTrue(parallel.isSolved());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.hafthor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the batch and file solvers hand back every puzzle in input order, solved the same as solving it alone,
+ * with the totals of their statistics.
+ */
+class PuzzleFileSolverTest {
+    private static final int COPIES = 50; // enough to fill several batches of the file solver
+
+    @TempDir
+    Path dir;
+
+    private static List<String> copies() {
+        final List<String> puzzles = new ArrayList<>();
+        for (int copy = 0; copy < COPIES; copy++)
+            puzzles.addAll(Checks.corpus());
+        return puzzles;
+    }
+
+    private static SolveTotals solveAlone(final List<String> puzzles, final List<String> solutions) {
+        final SolveTotals totals = new SolveTotals();
+        for (final String s : puzzles) {
+            final Puzzle puzzle = new Puzzle(s);
+            puzzle.solve(true, GuessStrategy.FIRST);
+            totals.add(puzzle);
+            solutions.add(Checks.cells(puzzle.getGrid()));
+        }
+        return totals;
+    }
+
+    @Test
+    void batchSolvesInOrder() {
+        final List<String> puzzles = copies(), expected = new ArrayList<>(), actual = new ArrayList<>();
+        final SolveTotals alone = solveAlone(puzzles, expected);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final SolveTotals totals = new PuzzleBatchSolver(pool, 8, GuessStrategy.FIRST)
+                    .solveAll(puzzles.stream(), puzzle -> actual.add(Checks.cells(puzzle.getGrid())));
+            assertEquals(expected, actual);
+            assertEquals(alone.getStatistics(), totals.getStatistics());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void fileSolvesInOrder() throws IOException {
+        final List<String> puzzles = copies(), expected = new ArrayList<>();
+        final SolveTotals alone = solveAlone(puzzles, expected);
+        final Path input = dir.resolve("puzzles.txt"), output = dir.resolve("solutions.txt");
+        // with blank lines between, and no newline at the end
+        Files.write(input, String.join("\n\n", puzzles).getBytes(StandardCharsets.US_ASCII));
+        final SolveTotals totals = new PuzzleFileSolver().solve(input, output);
+        final List<String> lines = Files.readAllLines(output, StandardCharsets.US_ASCII);
+        assertEquals(puzzles.size(), lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            assertEquals(expected.get(i), lines.get(i).substring(0, 9 * 9));
+            assertTrue(Checks.isSolutionOf(expected.get(i), puzzles.get(i)), lines.get(i));
+        }
+        assertEquals(alone.getStatistics(), totals.getStatistics());
+    }
+}
\ No newline at end of file
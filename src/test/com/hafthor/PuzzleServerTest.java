@@ -0,0 +1,68 @@
+package com.hafthor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the server answers the puzzles of a request with their solutions in order, and rejects what isn't a
+ * request to solve puzzles.
+ */
+class PuzzleServerTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private PuzzleServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new PuzzleServer(0, 2, GuessStrategy.FIRST);
+        server.start();
+    }
+
+    @AfterEach
+    void close() {
+        server.close();
+    }
+
+    private HttpResponse<String> post(final String body) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/solve"))
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void solvesEachPuzzleInOrder() throws Exception {
+        final List<String> corpus = Checks.corpus();
+        final HttpResponse<String> response = post(String.join("\n\n", corpus) + "\n");
+        assertEquals(200, response.statusCode());
+        final List<String> lines = response.body().lines().collect(Collectors.toList());
+        assertEquals(corpus.size(), lines.size());
+        for (int i = 0; i < corpus.size(); i++)
+            assertTrue(Checks.isSolutionOf(lines.get(i).substring(0, 9 * 9), corpus.get(i)), lines.get(i));
+        assertEquals(1, server.getRequests());
+        assertEquals(corpus.size(), server.getPuzzles());
+    }
+
+    @Test
+    void rejectsALineThatIsNotAPuzzle() throws Exception {
+        final HttpResponse<String> response = post(Checks.corpus().get(0) + "\n123\n");
+        assertEquals(400, response.statusCode());
+        assertEquals("not a puzzle on line 2\n", response.body());
+    }
+
+    @Test
+    void rejectsAnythingButPost() throws Exception {
+        final HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" +
+                server.getPort() + "/solve")).GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(405, response.statusCode());
+    }
+}
\ No newline at end of file
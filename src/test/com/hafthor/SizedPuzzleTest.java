@@ -0,0 +1,129 @@
+package com.hafthor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the sized engine solves puzzles of every box size, 4x4 to 25x25, made from a shuffled pattern solution
+ * with most of its cells taken away, and that 9x9 ones come out the same when handed to {@link Puzzle}.
+ */
+class SizedPuzzleTest {
+    private static final String ALPHABET = "123456789ABCDEFGHIJKLMNOP";
+    private static final int PUZZLES = 5;
+
+    // the fraction of cells left as givens by box size, few enough that the larger sizes need guessing
+    private static final double[] GIVENS = {0, 0, 0.3, 0.35, 0.45, 0.6};
+
+    /**
+     * Returns a puzzle made from a pattern solution shuffled at random, by relabeling its values and reordering its
+     * rows within bands and its columns within stacks, with all but a fraction of its cells taken away at random. It
+     * has at least one solution, but may well have more.
+     */
+    private static String sizedPuzzle(final int boxSize, final double givens, final Random random) {
+        final int side = boxSize * boxSize;
+        final List<Integer> values = new ArrayList<>();
+        for (int value = 0; value < side; value++)
+            values.add(value);
+        Collections.shuffle(values, random);
+        final int[] rows = linePermutation(boxSize, random), cols = linePermutation(boxSize, random);
+        final StringBuilder sb = new StringBuilder(side * side);
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                final int row = rows[r], col = cols[c];
+                final int value = (boxSize * (row % boxSize) + row / boxSize + col) % side;
+                sb.append(random.nextDouble() < givens ? ALPHABET.charAt(values.get(value)) : '.');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int[] linePermutation(final int boxSize, final Random random) {
+        final int[] permutation = new int[boxSize * boxSize];
+        for (int band = 0; band < boxSize; band++) {
+            final List<Integer> lines = new ArrayList<>();
+            for (int line = 0; line < boxSize; line++)
+                lines.add(band * boxSize + line);
+            Collections.shuffle(lines, random);
+            for (int line = 0; line < boxSize; line++)
+                permutation[band * boxSize + line] = lines.get(line);
+        }
+        return permutation;
+    }
+
+    /**
+     * Returns true if the solution keeps all the known values of the puzzle, with each value once in every row, column
+     * and box.
+     */
+    private static boolean isSolutionOf(final String solution, final String puzzle, final int boxSize) {
+        final int side = boxSize * boxSize;
+        if (solution.length() != side * side)
+            return false;
+        for (int i = 0; i < solution.length(); i++)
+            if (puzzle.charAt(i) != '.' && puzzle.charAt(i) != solution.charAt(i))
+                return false;
+        for (int n = 0; n < side; n++) {
+            int row = 0, col = 0, box = 0;
+            for (int m = 0; m < side; m++) {
+                row |= 1 << ALPHABET.indexOf(solution.charAt(n * side + m));
+                col |= 1 << ALPHABET.indexOf(solution.charAt(m * side + n));
+                box |= 1 << ALPHABET.indexOf(solution.charAt(
+                        ((n / boxSize) * boxSize + m / boxSize) * side + (n % boxSize) * boxSize + m % boxSize));
+            }
+            if (row != (1 << side) - 1 || col != (1 << side) - 1 || box != (1 << side) - 1)
+                return false;
+        }
+        return true;
+    }
+
+    private static String cells(final SizedPuzzle puzzle) {
+        return puzzle.toString().replaceAll("[^0-9A-Z.]", "");
+    }
+
+    @Test
+    void solvesEachSize() {
+        for (int boxSize = SizedPuzzle.MIN_BOX_SIZE; boxSize <= SizedPuzzle.MAX_BOX_SIZE; boxSize++) {
+            final Random random = new Random(boxSize);
+            for (int n = 0; n < PUZZLES; n++) {
+                final String input = sizedPuzzle(boxSize, GIVENS[boxSize], random);
+                final SizedPuzzle puzzle = new SizedPuzzle(boxSize, input);
+                assertTrue(puzzle.solve(), input);
+                assertTrue(puzzle.isSolved(), input);
+                assertEquals(1, puzzle.getSolutions(), input);
+                assertTrue(isSolutionOf(cells(puzzle), input, boxSize), input);
+            }
+        }
+    }
+
+    @Test
+    void solvesNineByNineOnEitherEngine() {
+        final Random random = new Random(3);
+        for (int n = 0; n < PUZZLES; n++) {
+            final String input = sizedPuzzle(3, GIVENS[3], random);
+            final SizedPuzzle sized = new SizedPuzzle(3, input), fast = new SizedPuzzle(3, input);
+            final int solutions = sized.countSolutions(2, false);
+            assertEquals(solutions, fast.countSolutions(2, true), input);
+            assertTrue(isSolutionOf(cells(sized), input, 3), input);
+            assertTrue(isSolutionOf(cells(fast), input, 3), input);
+        }
+        for (final String input : Checks.corpus()) {
+            final SizedPuzzle puzzle = new SizedPuzzle(3, input);
+            assertTrue(puzzle.solve(), input);
+            assertTrue(isSolutionOf(cells(puzzle), input, 3), input);
+        }
+    }
+
+    @Test
+    void findsNoSolutionOfAContradiction() {
+        final SizedPuzzle puzzle = new SizedPuzzle(2, "11.." + ".".repeat(12));
+        assertFalse(puzzle.solve());
+        assertFalse(puzzle.isSolved());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.hafthor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that streaming the solutions of a puzzle, sequentially and in parallel, gives different, valid solutions,
+ * and only as many as there are.
+ */
+class SolutionsTest {
+    private static final int LIMIT = 1000;
+
+    // the first generated puzzle, which has over a million solutions
+    private static final String GEN1 = "........." + "...1....6" + "5........" +
+            ".5.3..81." + "........." + "....8...." +
+            "9.8..1.5." + "...6.8.3." + "..7..9...";
+
+    private static void assertDistinctSolutions(final List<String> solutions, final String puzzle) {
+        assertEquals(LIMIT, solutions.size());
+        assertEquals(LIMIT, solutions.stream().distinct().count());
+        for (final String solution : solutions)
+            assertTrue(Checks.isSolutionOf(solution, puzzle), solution);
+    }
+
+    @Test
+    void streamsDifferentSolutions() {
+        assertDistinctSolutions(new Puzzle(GEN1).solutions().limit(LIMIT).map(Checks::cells)
+                .collect(Collectors.toList()), GEN1);
+    }
+
+    @Test
+    void streamsDifferentSolutionsInParallel() {
+        assertDistinctSolutions(new Puzzle(GEN1).solutions().parallel().limit(LIMIT).map(Checks::cells)
+                .collect(Collectors.toList()), GEN1);
+    }
+
+    @Test
+    void streamsTheOnlySolution() {
+        final List<String> corpus = Checks.corpus();
+        for (final String puzzle : corpus.subList(0, corpus.size() - 1)) { // all but the first generated puzzle
+            final List<String> solutions = new Puzzle(puzzle).solutions().map(Checks::cells)
+                    .collect(Collectors.toList());
+            assertEquals(1, solutions.size(), puzzle);
+            assertTrue(Checks.isSolutionOf(solutions.get(0), puzzle), puzzle);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,87 @@
+package com.hafthor;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that a listener is told the same about a puzzle whichever way of solving it is called.
+ */
+class SolverListenerTest {
+    // solved by propagation alone
+    private static final String EASY = "7.9..268." + "..2.5.7.4" + "......2.." +
+            "19...7.6." + "867195.4." + "5.4....9." +
+            "43578..2." + "..64....1" + "98.5.6..3";
+
+    // needs hundreds of guesses
+    private static final String HARD = "8........" + "..36....." + ".7..9.2.." +
+            ".5...7..." + "....457.." + "...1...3." +
+            "..1....68" + "..85...1." + ".9....4..";
+
+    /**
+     * Records the events other than those of propagation.
+     */
+    private static final class Recorder implements SolverListener {
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void solveStarted(final Puzzle puzzle) {
+            events.add("started");
+        }
+
+        @Override
+        public void solveEnded(final Puzzle puzzle) {
+            events.add("ended");
+        }
+
+        @Override
+        public void guessed(final Puzzle puzzle, final int cell, final short value, final int depth) {
+            events.add("guessed");
+        }
+
+        @Override
+        public void backtracked(final Puzzle puzzle, final int depth) {
+            events.add("backtracked");
+        }
+
+        @Override
+        public void solutionFound(final Puzzle puzzle) {
+            events.add("found " + puzzle.isSolved());
+        }
+    }
+
+    private static List<String> solve(final String s) {
+        final Puzzle puzzle = new Puzzle(s);
+        final Recorder recorder = new Recorder();
+        puzzle.setListener(recorder);
+        puzzle.setSolutionLimit(1);
+        puzzle.solve(true, GuessStrategy.FIRST);
+        return recorder.events;
+    }
+
+    private static List<String> solveWithinBudget(final String s) {
+        final Puzzle puzzle = new Puzzle(s);
+        final Recorder recorder = new Recorder();
+        puzzle.setListener(recorder);
+        puzzle.setSolutionLimit(1);
+        puzzle.solve(GuessStrategy.FIRST, Long.MAX_VALUE, Duration.ofMinutes(1), CancellationToken.NONE);
+        return recorder.events;
+    }
+
+    @Test
+    void solutionFoundWithoutGuessing() {
+        assertEquals(List.of("started", "found true", "ended"), solve(EASY));
+        assertEquals(solve(EASY), solveWithinBudget(EASY));
+    }
+
+    @Test
+    void solutionFoundByGuessing() {
+        final List<String> events = solve(HARD);
+        assertEquals("found true", events.get(events.size() - 2));
+        assertEquals(events, solveWithinBudget(HARD));
+    }
+}
\ No newline at end of file
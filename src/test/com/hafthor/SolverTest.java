@@ -0,0 +1,59 @@
+package com.hafthor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that guessing and backtracking in the puzzle itself and handing the grid to a dancing links solver agree, on
+ * the sample puzzles, and on counting the solutions, up to two, of grids of random givens like the generator starts
+ * from, which may well have none or many.
+ */
+class SolverTest {
+    private static final int GRIDS = 200;
+
+    private static String randomGivens(final Random random) {
+        final char[] cells = ".".repeat(9 * 9).toCharArray();
+        for (int placed = 0; placed < 17; ) {
+            final int i = random.nextInt(cells.length);
+            if (cells[i] == '.') {
+                cells[i] = (char) ('1' + random.nextInt(9));
+                placed++;
+            }
+        }
+        return new String(cells);
+    }
+
+    private static int countSolutions(final String puzzle, final Solver solver) {
+        final Puzzle p = new Puzzle(puzzle);
+        p.setSolver(solver);
+        return p.countSolutions(2);
+    }
+
+    @Test
+    void bothSolveTheCorpus() {
+        for (final String puzzle : Checks.corpus()) {
+            for (final Solver solver : new Solver[]{null, new DlxSolver()}) {
+                final Puzzle p = new Puzzle(puzzle);
+                p.setSolver(solver);
+                p.solve(true, false);
+                assertTrue(Checks.isSolutionOf(Checks.cells(p.toString()), puzzle), puzzle);
+            }
+        }
+    }
+
+    @Test
+    void bothCountTheSameSolutions() {
+        final Random random = new Random(0);
+        final DlxSolver dlx = new DlxSolver();
+        for (int n = 0; n < GRIDS; n++) {
+            final String grid = randomGivens(random);
+            assertEquals(countSolutions(grid, null), countSolutions(grid, dlx), grid);
+        }
+        for (final String puzzle : Checks.corpus())
+            assertEquals(countSolutions(puzzle, null), countSolutions(puzzle, dlx), puzzle);
+    }
+}
\ No newline at end of file